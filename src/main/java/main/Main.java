@@ -21,8 +21,12 @@ import java.io.File;
 import java.util.*;
 
 import main.clone.ClonePair;
+import main.clone.EnumCloneType;
 import main.clone.XMLCloneIndexReader;
 import main.matching.*;
+import main.method.Line;
+import main.method.Method;
+import main.method.PreprocessedCache;
 
 /**
  * Main class.
@@ -43,14 +47,14 @@ public class Main
     /**
      * Main function.
      *
-     * @param args <matcher_type> <xml_path> <source_directory>
+     * @param args <matcher_type> <xml_path> <source_directory> [options]
      */
     public static void main(String[] args)
     {
         System.out.println("Running application...");
         try {
-            // args: <matcher_type> <xml_path> <source_directory>
-            if(args.length != 3) {
+            // args: <matcher_type> <xml_path> <source_directory> [options]
+            if(args.length < 3) {
                 Main.log("Error: invalid arguments. First argument must be matcher type (line, token, tree_preorder, tree_postorder), second argument must be XML file path, third argument must be source files directory.");
                 return;
             }
@@ -65,20 +69,107 @@ public class Main
                 Main.log("Error: xml path must be a file, source files directory must be a directory.");
             }
 
+            // process options
+            boolean group_by_file = false;
+            String algo_name = "lcs";
+            boolean strip_affixes = false;
+            for (int i = 3; i < args.length; i++) {
+                if(args[i].startsWith("--cache-dir=")) {
+                    // store preprocessed methods on disk, so that later runs do not need to parse them again
+                    PreprocessedCache.enable(new File(args[i].substring("--cache-dir=".length())));
+                } else if(args[i].equals("--group-by-file")) {
+                    // parse each source file once, instead of parsing each method separately
+                    group_by_file = true;
+                } else if(args[i].startsWith("--algo=")) {
+                    // the sequence comparison algorithm
+                    algo_name = args[i].substring("--algo=".length());
+                } else if(args[i].equals("--lexer-tokens")) {
+                    // tokenize the methods without parsing them, methods with syntax errors are then compared instead of reported
+                    Method.setLexerTokenization(true);
+                } else if(args[i].equals("--strip-affixes")) {
+                    // match the common prefix and suffix before applying the algorithm
+                    strip_affixes = true;
+                } else {
+                    Main.log("Invalid option: '%s'", args[i]);
+                    return;
+                }
+            }
+
+            // select comparison algorithm, for lines and for tokens
+            SequenceComparisonAlgos.IMatchingAlgo<Line, EnumCloneType> line_algo;
+            SequenceComparisonAlgos.ITokenStreamMatchingAlgo token_algo;
+            switch (algo_name) {
+                case "lcs":
+                    line_algo = SequenceComparisonAlgos.LINE_LCS;
+                    token_algo = SequenceComparisonAlgos::computeTokenStreamLCS;
+                    break;
+                case "hirschberg":
+                    line_algo = SequenceComparisonAlgos::computeHirschbergLCS;
+                    token_algo = SequenceComparisonAlgos::computeTokenStreamHirschbergLCS;
+                    break;
+                case "myers":
+                    line_algo = SequenceComparisonAlgos::computeMyersLCS;
+                    token_algo = SequenceComparisonAlgos::computeTokenStreamMyersLCS;
+                    break;
+                case "bit_parallel":
+                    // only available for token streams
+                    line_algo = null;
+                    token_algo = SequenceComparisonAlgos::computeTokenStreamBitParallelLCS;
+                    break;
+                case "patience":
+                    // only available for lines
+                    line_algo = SequenceComparisonAlgos.patienceDiff(Line::getBlindedFingerprint);
+                    token_algo = null;
+                    break;
+                case "naive":
+                    // every match between the elements, not only those of a single LCS
+                    line_algo = SequenceComparisonAlgos.indexedNaiveMatch(Line::getExactFingerprint, Line::getBlindedFingerprint, 0);
+                    token_algo = SequenceComparisonAlgos.tokenStreamIndexedNaiveMatch(0);
+                    break;
+                case "hunt_szymanski":
+                    // only available for lines
+                    line_algo = SequenceComparisonAlgos.huntSzymanskiLCS(Line::getBlindedFingerprint);
+                    token_algo = null;
+                    break;
+                default:
+                    Main.log("Invalid algorithm: '%s'", algo_name);
+                    return;
+            }
+
+            if(matcher_type.equals("line") && line_algo == null) {
+                Main.log("Algorithm '%s' cannot be used to compare lines.", algo_name);
+                return;
+            }
+
+            if(!matcher_type.equals("line") && token_algo == null) {
+                Main.log("Algorithm '%s' can only be used to compare lines.", algo_name);
+                return;
+            }
+
+            // the naive matching matches every pair of equal elements, matching the prefix and suffix position by position would drop pairs
+            if(strip_affixes && algo_name.equals("naive")) {
+                Main.log("Option '--strip-affixes' cannot be combined with algorithm '%s'.", algo_name);
+                return;
+            }
+
+            // match the common prefix and suffix before applying the algorithm
+            SequenceComparisonAlgos.IMatchingAlgo<Line, EnumCloneType> line_matching_algo = strip_affixes && line_algo != null ? SequenceComparisonAlgos.stripAffixes(line_algo) : line_algo;
+            SequenceComparisonAlgos.ITokenStreamMatchingAlgo token_matching_algo = strip_affixes && token_algo != null ? SequenceComparisonAlgos.stripAffixes(token_algo) : token_algo;
+
             // create matcher
             IMatcher matcher;
             switch (matcher_type) {
                 case "line":
-                    matcher = (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos::computeLCS, -1, -1, false, true);
+                    matcher = (method1, method2) -> new LineMatching(method1, method2, line_matching_algo, -1, -1, false, true);
                     break;
                 case "token":
-                    matcher = ((method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeLCS, -1, -1));
+                    matcher = ((method1, method2) -> new TokenMatching(method1, method2, token_matching_algo, -1, -1));
                     break;
                 case "tree_preorder":
-                    matcher = ((method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeLCS, -1, -1, true));
+                    matcher = ((method1, method2) -> new TraversalTreeMatching(method1, method2, token_matching_algo, -1, -1, true));
                     break;
                 case "tree_postorder":
-                    matcher = ((method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeLCS, -1, -1, false));
+                    matcher = ((method1, method2) -> new TraversalTreeMatching(method1, method2, token_matching_algo, -1, -1, false));
                     break;
                 default:
                     Main.log("Invalid matcher type: '%s'", matcher_type);
@@ -86,7 +177,7 @@ public class Main
             }
 
             // read clones
-            List<ClonePair> dataset = XMLCloneIndexReader.readIndex(xml_path, source_root);
+            List<ClonePair> dataset = XMLCloneIndexReader.readIndex(xml_path, source_root, group_by_file);
 
             // create and run application
             Application app = new Application(
@@ -17,6 +17,8 @@
 
 package main.clone;
 
+import main.Main;
+import main.method.CompilationUnitGroup;
 import main.method.Method;
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
@@ -27,26 +29,49 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class that reads an XML file that contains a list of clone pairs. It will output a list of clone pairs. The clone pairs will contain methods of the specified type.
  * Note that this class will simply read the index. It will not perform any verification, and it will not load the referenced source code files.
+ *
+ * Methods that are referenced multiple times in the index are interned: all clone pairs that refer to the same method share a single
+ * {@link Method} instance, so that the method is only parsed and tokenized once.
  */
 public class XMLCloneIndexReader
 {
     /**
      * Parse the specified XML file into a list of clones. All the paths specified in the XML file
-     * will be relative to "source_file_root".
+     * will be relative to "source_file_root". The number of method references that were collapsed into a shared
+     * instance will be printed using {@link Main#log(String, Object...)}.
      *
      * @param xml_file The index file that contains a list of clones.
      * @param source_file_root Directory that contains all the paths specified in the XML file.
      */
     public static List<ClonePair> readIndex(File xml_file, File source_file_root) throws IOException
+    {
+        return readIndex(xml_file, source_file_root, false);
+    }
+
+    /**
+     * Parse the specified XML file into a list of clones. All the paths specified in the XML file
+     * will be relative to "source_file_root". The number of method references that were collapsed into a shared
+     * instance will be printed using {@link Main#log(String, Object...)}.
+     *
+     * @param xml_file The index file that contains a list of clones.
+     * @param source_file_root Directory that contains all the paths specified in the XML file.
+     * @param group_by_file True if the methods will be grouped by source file, so that each source file is parsed only once. See {@link CompilationUnitGroup}.
+     */
+    public static List<ClonePair> readIndex(File xml_file, File source_file_root, boolean group_by_file) throws IOException
     {
         try {
             List<ClonePair> retval = new ArrayList<>();
 
+            // methods that have already been encountered, by canonical path and line range
+            Map<String, Method> interned_methods = new HashMap<>();
+
             // read XML file
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
@@ -67,11 +92,11 @@ public class XMLCloneIndexReader
                 // retrieve method information from XML
                 // first method of clone pair
                 NamedNodeMap attrs0 = clone_elem.getElementsByTagName("source").item(0).getAttributes();
-                Method method0 = M_parseMethodXML(attrs0, source_file_root);
+                Method method0 = M_parseMethodXML(attrs0, source_file_root, interned_methods);
 
                 // second method of clone pair
                 NamedNodeMap attrs1 = clone_elem.getElementsByTagName("source").item(1).getAttributes();
-                Method method1 = M_parseMethodXML(attrs1, source_file_root);
+                Method method1 = M_parseMethodXML(attrs1, source_file_root, interned_methods);
 
                 // retrieve manual classification from XML, convert classification to enum
                 String type_name = clone_elem.getAttribute("type");
@@ -81,6 +106,16 @@ public class XMLCloneIndexReader
                 retval.add(new ClonePair(method0, method1, manual_classification));
             }
 
+            // each pair references two methods, all references to a method beyond the first one were collapsed
+            int reference_count = 2 * retval.size();
+            Main.log("Read %d clone pairs, collapsed %d duplicate method references into %d unique methods.",
+                    retval.size(), reference_count - interned_methods.size(), interned_methods.size());
+
+            if(group_by_file) {
+                int group_count = CompilationUnitGroup.groupByFile(interned_methods.values());
+                Main.log("Grouped %d unique methods by %d source files.", interned_methods.size(), group_count);
+            }
+
             return retval;
         } catch (SAXException | ParserConfigurationException | IllegalArgumentException e) {
             // encapsulate in IOException since this is all I/O
@@ -90,11 +125,13 @@ public class XMLCloneIndexReader
 
     /**
      * Parse a method from the specified XML attribute map. The map has to contain attributes "source", "startline", "endline".
+     * If the same method has already been parsed, the existing instance is returned.
      *
      * @param method_attrs The XML attribute map that contains information about the method.
      * @param source_file_root The directory that contains the path that is specified in the attribute map under "source".
+     * @param interned_methods The methods that have already been parsed, by canonical path and line range. New methods will be added to this map.
      */
-    private static Method M_parseMethodXML(NamedNodeMap method_attrs, File source_file_root)
+    private static Method M_parseMethodXML(NamedNodeMap method_attrs, File source_file_root, Map<String, Method> interned_methods) throws IOException
     {
         // construct path to file, this does NOT yet verify the existence of the file.
         File path = new File(source_file_root, method_attrs.getNamedItem("file").getTextContent());
@@ -102,6 +139,9 @@ public class XMLCloneIndexReader
         int begin = Integer.parseInt(method_attrs.getNamedItem("startline").getTextContent());
         int end = Integer.parseInt(method_attrs.getNamedItem("endline").getTextContent());
 
-        return new Method(path, begin, end);
+        // the canonical path is used so that different spellings of the same path are recognized
+        String key = String.format("%s:%d:%d", path.getCanonicalPath(), begin, end);
+
+        return interned_methods.computeIfAbsent(key, k -> new Method(path, begin, end));
     }
 }
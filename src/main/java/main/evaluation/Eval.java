@@ -22,14 +22,22 @@ import com.github.javaparser.Problem;
 import main.Main;
 import main.clone.ClonePair;
 import main.clone.EnumCloneType;
+import main.matching.CascadeMatcher;
 import main.matching.IMatcher;
 import main.matching.IMethodMatching;
 import main.matching.MatchingException;
+import main.matching.MultiGranularityMatcher;
+import main.matching.UpperBoundFilter;
 import main.method.Method;
+import main.method.PreprocessedCache;
+import main.method.SourceFileCache;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Evaluation utility for clone type classifiers. This allows for evaluating matching algorithms using a specified dataset.
@@ -97,6 +105,11 @@ public class Eval
     /**
      * Run the evaluation using the specified parameters.
      *
+     * Only the classification of each pair is used, so the matcher can create its matchings with the "classification_only" flag.
+     * These do not hold on to the lines, tokens, or tree nodes of each pair, and give the same classification. For example:
+     *
+     *     Eval.eval(pairs, pairs.size(), (method_1, method_2) -> new TokenMatching(method_1, method_2, algo, min_size, min_density, true), true)
+     *
      * @param pairs The clone pairs that will be used to evaluate the classifier.
      * @param num_clones The number of clones, starting from the beginning of the list, that will be considered in the evaluation.
      * @param matcher The {@link IMatcher} that will be used to match pairs of methods.
@@ -133,21 +146,85 @@ public class Eval
             } catch (MatchingException e) {
                 error_count++;
 
-                Main.log("Error when matching pair:");
-                Main.log("\tIdx: %d", i);
-                Method method1 = pair.getMethod1();
-                Main.log("\tSource 1: (%s, %d, %d)", method1.getPath().getPath(), method1.getBegin(), method1.getEnd());
-                Method method2 = pair.getMethod2();
-                Main.log("\tSource 2: (%s, %d, %d)", method2.getPath().getPath(), method2.getBegin(), method2.getEnd());
+                M_logError(i, pair, e);
+            }
+
+            // print progress
+            if(print_status && i % 100 == 0) {
+                Main.log("Current=%d/%d", i, num_clones);
+            }
+        }
+
+        if(print_status) {
+            M_printCacheStatus();
+            M_printMatcherStatus(matcher);
+        }
+
+        return new Result(confusion_matrix, correct, misclassified, error_count);
+    }
+
+    /**
+     * Run the evaluation at several granularities in a single pass over the dataset. Each pair is matched once by the specified matcher, which
+     * parses each method once for all granularities.
+     *
+     * @param pairs The clone pairs that will be used to evaluate the classifier.
+     * @param num_clones The number of clones, starting from the beginning of the list, that will be considered in the evaluation.
+     * @param matcher The {@link MultiGranularityMatcher} that will be used to match pairs of methods.
+     * @param print_status Whether or not to print a progress indicator every 100 clones using {@link Main#log(String, Object...)}.
+     *
+     * @return The result of the evaluation of each granularity, by the name of the granularity.
+     */
+    public static Map<String, Result> eval(List<ClonePair> pairs, int num_clones, MultiGranularityMatcher matcher, boolean print_status) throws IOException
+    {
+        List<String> granularities = matcher.getGranularities();
+
+        Map<String, MultiClassConfusionMatrix> confusion_matrices = new LinkedHashMap<>();
+        Map<String, List<ClonePair>> correct = new HashMap<>();
+        Map<String, List<ClonePair>> misclassified = new HashMap<>();
+        Map<String, Integer> error_counts = new HashMap<>();
+
+        for (String granularity : granularities) {
+            confusion_matrices.put(granularity, new MultiClassConfusionMatrix(List.of(EnumCloneType.values())));
+            correct.put(granularity, new ArrayList<>());
+            misclassified.put(granularity, new ArrayList<>());
+            error_counts.put(granularity, 0);
+        }
+
+        for (int i = 0; i < Math.min(pairs.size(), num_clones); i++) {
+            ClonePair pair = pairs.get(i);
+
+            try {
+                MultiGranularityMatcher.Matching matchings = matcher.match(pair.getMethod1(), pair.getMethod2());
+
+                for (String granularity : granularities) {
+                    try {
+                        EnumCloneType truth = pair.getManualClassification();
+                        EnumCloneType pred = matchings.getMatching(granularity).classify();
+
+                        // add the prediction to the confusion matrix of the granularity
+                        confusion_matrices.get(granularity).addPrediction(pred, truth);
+
+                        if (pred != truth) {
+                            misclassified.get(granularity).add(pair);
+                        } else {
+                            correct.get(granularity).add(pair);
+                        }
 
-                if(e.getCause() instanceof ParseProblemException) {
-                    for (Problem problem : ((ParseProblemException) e.getCause()).getProblems()) {
-                        Main.log("Reason: '%s'", problem.getMessage());
+                    } catch (MatchingException e) {
+                        error_counts.merge(granularity, 1, Integer::sum);
+
+                        M_logError(i, pair, e);
+                        Main.log("\tGranularity: %s", granularity);
                     }
-                } else {
-                    Main.log("Reason: '%s'", e.getMessage());
                 }
 
+            } catch (MatchingException e) {
+                // the pair could not be matched at any granularity
+                for (String granularity : granularities) {
+                    error_counts.merge(granularity, 1, Integer::sum);
+                }
+
+                M_logError(i, pair, e);
             }
 
             // print progress
@@ -156,6 +233,69 @@ public class Eval
             }
         }
 
-        return new Result(confusion_matrix, correct, misclassified, error_count);
+        if(print_status) {
+            M_printCacheStatus();
+            for (String granularity : granularities) {
+                M_printMatcherStatus(matcher.getMatcher(granularity));
+            }
+        }
+
+        Map<String, Result> retval = new LinkedHashMap<>();
+        for (String granularity : granularities) {
+            retval.put(granularity, new Result(confusion_matrices.get(granularity), correct.get(granularity), misclassified.get(granularity), error_counts.get(granularity)));
+        }
+
+        return retval;
+    }
+
+    /**
+     * Log the error that occurred when the specified pair was matched.
+     */
+    private static void M_logError(int idx, ClonePair pair, MatchingException e)
+    {
+        Main.log("Error when matching pair:");
+        Main.log("\tIdx: %d", idx);
+        Method method1 = pair.getMethod1();
+        Main.log("\tSource 1: (%s, %d, %d)", method1.getPath().getPath(), method1.getBegin(), method1.getEnd());
+        Method method2 = pair.getMethod2();
+        Main.log("\tSource 2: (%s, %d, %d)", method2.getPath().getPath(), method2.getBegin(), method2.getEnd());
+
+        if(e.getCause() instanceof ParseProblemException) {
+            for (Problem problem : ((ParseProblemException) e.getCause()).getProblems()) {
+                Main.log("Reason: '%s'", problem.getMessage());
+            }
+        } else {
+            Main.log("Reason: '%s'", e.getMessage());
+        }
+    }
+
+    /**
+     * Print the statistics of the caches.
+     */
+    private static void M_printCacheStatus()
+    {
+        SourceFileCache cache = SourceFileCache.getInstance();
+        Main.log("Source file cache: hits=%d, misses=%d, evictions=%d", cache.getHitCount(), cache.getMissCount(), cache.getEvictionCount());
+
+        PreprocessedCache persistent_cache = PreprocessedCache.getInstance();
+        if(persistent_cache != null) {
+            Main.log("Persistent cache: hits=%d, misses=%d", persistent_cache.getHitCount(), persistent_cache.getMissCount());
+        }
+    }
+
+    /**
+     * Print the statistics of the specified matcher, if it keeps any.
+     */
+    private static void M_printMatcherStatus(IMatcher matcher)
+    {
+        if(matcher instanceof CascadeMatcher) {
+            CascadeMatcher<?> cascade = (CascadeMatcher<?>) matcher;
+            Main.log("Cascade: exact=%d, blinded=%d, full=%d", cascade.getExactResolvedCount(), cascade.getBlindedResolvedCount(), cascade.getFullyMatchedCount());
+        }
+
+        if(matcher instanceof UpperBoundFilter) {
+            UpperBoundFilter<?> filter = (UpperBoundFilter<?>) matcher;
+            Main.log("Filter: length=%d, histogram=%d, qgram=%d, full=%d", filter.getLengthRejectedCount(), filter.getHistogramRejectedCount(), filter.getQgramRejectedCount(), filter.getFullyMatchedCount());
+        }
     }
 }
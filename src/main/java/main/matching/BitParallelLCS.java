@@ -0,0 +1,248 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+import main.method.Token;
+import main.method.TokenStream;
+
+import java.util.*;
+
+/**
+ * Bit-parallel LCS of two token streams (Allison-Dix, in the formulation of Hyyrö). Each row of the LCS matrix is represented by
+ * a bit vector V over the columns, where the LCS length of a cell equals the number of zero bits of V before that cell. A row is
+ * computed from the previous one using a handful of word operations per 64 columns:
+ *
+ *     U = V & M
+ *     V = (V + U) | (V - U)
+ *
+ * where M contains a one for each column whose token matches the token of the row. Two tokens match if they form a Type-1 or a
+ * Type-2 match, see {@link Token#compareSymbols(int, int)}. The match vector of a token is therefore the union of the positions
+ * with the same contents, and, for identifiers and literals, the positions with the same category.
+ *
+ * To recover the matches, the bit vector of every row is kept, which requires one bit per cell. The traceback applies the same rules
+ * as {@link SequenceComparisonAlgos#computeLCS}, so the result is identical.
+ */
+class BitParallelLCS
+{
+    private final TokenStream m_seq1;
+    private final TokenStream m_seq2;
+
+    // the number of words of a bit vector
+    private final int m_words;
+
+    // the positions of the second sequence, per content ID of the tokens
+    private final Map<Integer, long[]> m_contentMasks = new HashMap<>();
+
+    // the positions of the second sequence, per token category. The entry for OTHER stays empty, since those tokens cannot form a Type-2 match.
+    private final long[][] m_categoryMasks;
+
+    /**
+     * Constructor.
+     */
+    private BitParallelLCS(TokenStream seq1, TokenStream seq2)
+    {
+        m_seq1 = seq1;
+        m_seq2 = seq2;
+        m_words = (seq2.size() + Long.SIZE - 1) / Long.SIZE;
+        m_categoryMasks = new long[Token.EnumTokenCategory.values().length][m_words];
+
+        for (int j = 0; j < seq2.size(); j++) {
+            int symbol = seq2.getSymbol(j);
+
+            long[] content_mask = m_contentMasks.computeIfAbsent(symbol >>> Token.CATEGORY_BITS, k -> new long[m_words]);
+            content_mask[j / Long.SIZE] |= 1L << j;
+
+            if(Token.getCategory(symbol) != Token.EnumTokenCategory.OTHER) {
+                m_categoryMasks[symbol & Token.CATEGORY_MASK][j / Long.SIZE] |= 1L << j;
+            }
+        }
+    }
+
+    /**
+     * Compute the LCS of the specified token streams.
+     *
+     * @return The matches that form the LCS, ordered by index.
+     */
+    static List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> compute(TokenStream seq1, TokenStream seq2)
+    {
+        return compute(seq1, seq2, 0);
+    }
+
+    /**
+     * Compute the LCS of the specified token streams. The computation is abandoned as soon as the LCS cannot contain the specified
+     * number of matches anymore, using the bound of {@link RollingRowLCS#compute(int, int, SequenceComparisonAlgos.IIndexPredicate, int)}.
+     *
+     * @param min_matches The minimum number of matches.
+     *
+     * @return The matches that form the LCS, ordered by index. Null if the LCS contains fewer than "min_matches" matches.
+     */
+    static List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> compute(TokenStream seq1, TokenStream seq2, int min_matches)
+    {
+        if(Math.min(seq1.size(), seq2.size()) < min_matches) {
+            return null;
+        }
+
+        if(seq1.size() == 0 || seq2.size() == 0) {
+            return List.of();
+        }
+
+        BitParallelLCS algo = new BitParallelLCS(seq1, seq2);
+        int words = algo.m_words;
+        int size_1 = seq1.size();
+        int size_2 = seq2.size();
+
+        // rows[r * words ...] is the bit vector of row r, row 0 is the empty prefix of the first sequence
+        long[] rows = new long[(size_1 + 1) * words];
+        System.arraycopy(algo.M_initialRow(), 0, rows, 0, words);
+
+        long[] match = new long[words];
+        for (int i = 0; i < size_1; i++) {
+            algo.M_getMatchVector(i, match);
+            algo.M_nextRow(rows, i * words, match, rows, (i + 1) * words);
+
+            // the same bound as RollingRowLCS, which only needs the zeros left of a single column
+            int remaining_rows = size_1 - 1 - i;
+            if(min_matches > 0 && algo.M_countZeros(rows, (i + 1) * words, RollingRowLCS.M_boundColumn(size_2, remaining_rows)) + Math.min(remaining_rows, size_2) < min_matches) {
+                return null;
+            }
+        }
+
+        int length = algo.M_countZeros(rows, size_1 * words, size_2);
+
+        // follow the matrix back from the last cell, like computeLCS does
+        // "current" is the LCS length of cell (i, j), "top" the length of cell (i - 1, j), each relative to the full prefixes
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> retval = new ArrayList<>(length);
+        int i = size_1 - 1;
+        int j = size_2 - 1;
+        int current = length;
+        int top = algo.M_countZeros(rows, i * words, j + 1);
+
+        while(retval.size() < length) {
+            algo.M_getMatchVector(i, match);
+
+            if((match[j / Long.SIZE] & (1L << j)) != 0) {
+                // a match always continues diagonally
+                retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(i, j, Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j))));
+
+                current = top - M_zeroBit(rows, i * words, j);
+                i--;
+                j--;
+
+                if(i >= 0) {
+                    top = algo.M_countZeros(rows, i * words, j + 1);
+                }
+            } else {
+                int left = current - M_zeroBit(rows, (i + 1) * words, j);
+
+                if(top >= left) {
+                    // prefer the cell above
+                    current = top;
+                    i--;
+                    top = algo.M_countZeros(rows, i * words, j + 1);
+                } else {
+                    current = left;
+                    top = top - M_zeroBit(rows, i * words, j);
+                    j--;
+                }
+            }
+        }
+
+        Collections.reverse(retval);
+
+        return retval;
+    }
+
+    /**
+     * The bit vector of the row of the empty prefix, all ones.
+     */
+    private long[] M_initialRow()
+    {
+        long[] retval = new long[m_words];
+        Arrays.fill(retval, -1L);
+
+        return retval;
+    }
+
+    /**
+     * Determine the columns that match the specified element of the first sequence.
+     */
+    private void M_getMatchVector(int idx_1, long[] match)
+    {
+        int symbol = m_seq1.getSymbol(idx_1);
+        long[] content_mask = m_contentMasks.get(symbol >>> Token.CATEGORY_BITS);
+        long[] category_mask = m_categoryMasks[symbol & Token.CATEGORY_MASK];
+
+        for (int w = 0; w < m_words; w++) {
+            match[w] = category_mask[w] | (content_mask == null ? 0 : content_mask[w]);
+        }
+    }
+
+    /**
+     * Compute the bit vector of the next row.
+     */
+    private void M_nextRow(long[] source, int source_offset, long[] match, long[] destination, int destination_offset)
+    {
+        long carry = 0;
+        long borrow = 0;
+
+        // multi-word addition and subtraction, from the least significant word to the most significant word
+        for (int w = 0; w < m_words; w++) {
+            long v = source[source_offset + w];
+            long u = v & match[w];
+
+            long partial_sum = v + u;
+            long sum = partial_sum + carry;
+            carry = (Long.compareUnsigned(partial_sum, v) < 0 || Long.compareUnsigned(sum, partial_sum) < 0) ? 1 : 0;
+
+            long partial_difference = v - u;
+            long difference = partial_difference - borrow;
+            borrow = (Long.compareUnsigned(v, u) < 0 || Long.compareUnsigned(partial_difference, borrow) < 0) ? 1 : 0;
+
+            destination[destination_offset + w] = sum | difference;
+        }
+    }
+
+    /**
+     * Count the zero bits among the first "columns" bits of the specified bit vector. This is the LCS length of the corresponding cell.
+     */
+    private int M_countZeros(long[] rows, int offset, int columns)
+    {
+        int retval = 0;
+
+        for (int w = 0; w < columns / Long.SIZE; w++) {
+            retval += Long.bitCount(~rows[offset + w]);
+        }
+
+        // partial last word
+        if(columns % Long.SIZE != 0) {
+            long mask = (1L << columns) - 1;
+            retval += Long.bitCount(~rows[offset + columns / Long.SIZE] & mask);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Returns 1 if the specified bit of the specified bit vector is zero, 0 otherwise.
+     */
+    private static int M_zeroBit(long[] rows, int offset, int column)
+    {
+        return (int) (~rows[offset + column / Long.SIZE] >>> column) & 1;
+    }
+}
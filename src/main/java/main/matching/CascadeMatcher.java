@@ -0,0 +1,263 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import com.github.javaparser.ParseProblemException;
+import main.clone.EnumCloneType;
+import main.method.Line;
+import main.method.Method;
+import main.method.Token;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Matcher that classifies obvious Type-1 and Type-2 clones without computing an alignment. The comparison units of each method
+ * are summarized by two fingerprints: an exact fingerprint, and a fingerprint in which identifiers and literals are blinded.
+ *
+ *  - If the exact fingerprints of both methods are equal, and the units are indeed equal, the pair is resolved as Type-1.
+ *  - Otherwise, if the blinded fingerprints are equal, and each unit matches the unit at the same position, the pair is resolved as Type-2.
+ *  - All other pairs are matched by the wrapped matcher.
+ *
+ * If all units match the unit at the same position, these matches form the only LCS, so the classification is identical to that
+ * of the wrapped matcher. The alignment for displaying the methods is only computed by the wrapped matcher when it is requested.
+ *
+ * @param <UnitType> The type of the comparison units.
+ */
+public class CascadeMatcher<UnitType> implements IMatcher
+{
+    /**
+     * Retrieves the comparison units of a method.
+     */
+    @FunctionalInterface
+    public interface IUnitExtractor<UnitType>
+    {
+        List<UnitType> extract(Method method) throws IOException;
+    }
+
+    private final IMatcher m_fullMatcher;
+    private final IUnitExtractor<UnitType> m_unitExtractor;
+    private final ToIntFunction<UnitType> m_exactFingerprint;
+    private final ToIntFunction<UnitType> m_blindedFingerprint;
+    private final BiFunction<UnitType, UnitType, EnumCloneType> m_unitComparator;
+    private final BiConsumer<List<UnitType>, EnumCloneType[]> m_postprocessing;
+
+    private final int m_minSize;
+    private final float m_minDensity;
+
+    // the fingerprints of each method: the number of units, the exact fingerprint, and the blinded fingerprint
+    private final Map<Method, int[]> m_fingerprints = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // the number of pairs resolved by each stage
+    private long m_exactResolved = 0;
+    private long m_blindedResolved = 0;
+    private long m_fullyMatched = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param full_matcher The matcher for pairs that cannot be resolved using the fingerprints.
+     * @param unit_extractor Retrieves the comparison units that are used by the full matcher.
+     * @param exact_fingerprint The exact fingerprint of a unit. Units that form a Type-1 match must have equal fingerprints.
+     * @param blinded_fingerprint The blinded fingerprint of a unit. Units that form a Type-2 match should have equal fingerprints.
+     * @param unit_comparator Compares two units in the same way as the full matcher.
+     * @param postprocessing Post-processing that the full matcher applies to the matches of each method, or null.
+     * @param min_size The minimum size of the clone segment, the same as that of the full matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the full matcher.
+     */
+    CascadeMatcher(IMatcher full_matcher, IUnitExtractor<UnitType> unit_extractor, ToIntFunction<UnitType> exact_fingerprint, ToIntFunction<UnitType> blinded_fingerprint,
+                           BiFunction<UnitType, UnitType, EnumCloneType> unit_comparator, BiConsumer<List<UnitType>, EnumCloneType[]> postprocessing, int min_size, float min_density)
+    {
+        m_fullMatcher = full_matcher;
+        m_unitExtractor = unit_extractor;
+        m_exactFingerprint = exact_fingerprint;
+        m_blindedFingerprint = blinded_fingerprint;
+        m_unitComparator = unit_comparator;
+        m_postprocessing = postprocessing;
+        m_minSize = min_size;
+        m_minDensity = min_density;
+    }
+
+    /**
+     * Create a cascade for a {@link LineMatching} matcher, whose braces are not removed before the comparison.
+     *
+     * @param full_matcher The line matcher.
+     * @param braces_postprocessing Whether the line matcher removes braces after the comparison.
+     * @param min_size The minimum size of the clone segment, the same as that of the line matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the line matcher.
+     */
+    public static CascadeMatcher<Line> forLines(IMatcher full_matcher, boolean braces_postprocessing, int min_size, float min_density)
+    {
+        return new CascadeMatcher<>(full_matcher, Method::getLines, Line::getExactFingerprint, Line::getBlindedFingerprint, LineMatching::M_compareLines,
+                braces_postprocessing ? LineMatching::M_filterBracketMatches : null, min_size, min_density);
+    }
+
+    /**
+     * Create a cascade for a matcher whose comparison units are tokens, such as {@link TokenMatching} or {@link TraversalTreeMatching}.
+     *
+     * @param full_matcher The token matcher.
+     * @param unit_extractor Retrieves the tokens that are used by the token matcher.
+     * @param min_size The minimum size of the clone segment, the same as that of the token matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the token matcher.
+     */
+    public static CascadeMatcher<Token> forTokens(IMatcher full_matcher, IUnitExtractor<Token> unit_extractor, int min_size, float min_density)
+    {
+        return new CascadeMatcher<>(full_matcher, unit_extractor, Token::getContentId, Token::getBlindedKey,
+                (token1, token2) -> Token.compareSymbols(token1.getSymbol(), token2.getSymbol()), null, min_size, min_density);
+    }
+
+    @Override
+    public IMethodMatching match(Method method1, Method method2) throws MatchingException
+    {
+        try {
+            int[] fingerprints_1 = M_getFingerprints(method1);
+            int[] fingerprints_2 = M_getFingerprints(method2);
+
+            // the units must be aligned one-to-one
+            if(fingerprints_1[0] == fingerprints_2[0] && (fingerprints_1[1] == fingerprints_2[1] || fingerprints_1[2] == fingerprints_2[2])) {
+                List<UnitType> units_1 = m_unitExtractor.extract(method1);
+                List<UnitType> units_2 = m_unitExtractor.extract(method2);
+                EnumCloneType[] matched = M_matchPositionally(units_1, units_2);
+
+                if(matched != null) {
+                    M_countResolved(matched);
+                    return new DeferredMethodMatching(m_fullMatcher, method1, method2, M_classify(units_1, units_2, matched));
+                }
+            }
+        } catch (IOException | ParseProblemException e) {
+            throw new MatchingException(e);
+        }
+
+        synchronized (this) {
+            m_fullyMatched++;
+        }
+
+        return m_fullMatcher.match(method1, method2);
+    }
+
+    /**
+     * The number of pairs that were resolved because all units are equal.
+     */
+    public synchronized long getExactResolvedCount()
+    {
+        return m_exactResolved;
+    }
+
+    /**
+     * The number of pairs that were resolved because all units are equal, apart from identifiers and literals.
+     */
+    public synchronized long getBlindedResolvedCount()
+    {
+        return m_blindedResolved;
+    }
+
+    /**
+     * The number of pairs that were matched by the full matcher.
+     */
+    public synchronized long getFullyMatchedCount()
+    {
+        return m_fullyMatched;
+    }
+
+    /**
+     * Retrieve the number of units, the exact fingerprint, and the blinded fingerprint of the specified method.
+     */
+    private int[] M_getFingerprints(Method method) throws IOException
+    {
+        int[] retval = m_fingerprints.get(method);
+
+        if(retval == null) {
+            List<UnitType> units = m_unitExtractor.extract(method);
+
+            int exact_fingerprint = 1;
+            int blinded_fingerprint = 1;
+            for (UnitType unit : units) {
+                exact_fingerprint = exact_fingerprint * 31 + m_exactFingerprint.applyAsInt(unit);
+                blinded_fingerprint = blinded_fingerprint * 31 + m_blindedFingerprint.applyAsInt(unit);
+            }
+
+            retval = new int[] {units.size(), exact_fingerprint, blinded_fingerprint};
+            m_fingerprints.put(method, retval);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Match each unit of the first method with the unit at the same position in the second method. The fingerprints may collide,
+     * so the units are compared.
+     *
+     * @return The match of each unit, or null if a unit does not match.
+     */
+    private EnumCloneType[] M_matchPositionally(List<UnitType> units_1, List<UnitType> units_2)
+    {
+        EnumCloneType[] retval = new EnumCloneType[units_1.size()];
+
+        for (int i = 0; i < units_1.size(); i++) {
+            retval[i] = m_unitComparator.apply(units_1.get(i), units_2.get(i));
+
+            if(retval[i] == null) {
+                return null;
+            }
+        }
+
+        return retval;
+    }
+
+    /**
+     * Classify the pair, given the positional matches of the units.
+     */
+    private EnumCloneType M_classify(List<UnitType> units_1, List<UnitType> units_2, EnumCloneType[] matched)
+    {
+        EnumCloneType[] method1_matched = matched.clone();
+        EnumCloneType[] method2_matched = matched.clone();
+
+        // apply the same post-processing as the full matcher
+        if(m_postprocessing != null) {
+            m_postprocessing.accept(units_1, method1_matched);
+            m_postprocessing.accept(units_2, method2_matched);
+        }
+
+        // take least strict type
+        return EnumCloneType.min(
+                IMethodMatching.classifyMethod(method1_matched, m_minSize, m_minDensity),
+                IMethodMatching.classifyMethod(method2_matched, m_minSize, m_minDensity)
+        );
+    }
+
+    /**
+     * Count a pair that was resolved using the fingerprints, by the stage that corresponds with the matches that were found: the
+     * exact stage if all units are equal, and the blinded stage otherwise. Equal exact fingerprints do not imply equal units.
+     */
+    private synchronized void M_countResolved(EnumCloneType[] matched)
+    {
+        EnumCloneType type = EnumCloneType.TYPE_1;
+        for (EnumCloneType match : matched) {
+            type = EnumCloneType.min(type, match);
+        }
+
+        if(type == EnumCloneType.TYPE_1) {
+            m_exactResolved++;
+        } else {
+            m_blindedResolved++;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+import main.method.Method;
+
+import java.awt.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Matching whose classification is already known without an alignment of the methods. The alignment is only computed by the
+ * specified matcher when the methods are displayed.
+ */
+class DeferredMethodMatching implements IMethodMatching
+{
+    private final IMatcher m_matcher;
+    private final Method m_method1;
+    private final Method m_method2;
+    private final EnumCloneType m_type;
+
+    private IMethodMatching m_matching = null;
+
+    /**
+     * Constructor.
+     *
+     * @param matcher The matcher that computes the alignment for displaying the methods.
+     * @param method1 The first method.
+     * @param method2 The second method.
+     * @param type The classification of the pair.
+     */
+    DeferredMethodMatching(IMatcher matcher, Method method1, Method method2, EnumCloneType type)
+    {
+        m_matcher = matcher;
+        m_method1 = method1;
+        m_method2 = method2;
+        m_type = type;
+    }
+
+    @Override
+    public EnumCloneType classify()
+    {
+        return m_type;
+    }
+
+    @Override
+    public void writeMatchedMethod1(BiConsumer<String, Color> writer)
+    {
+        M_getMatching().writeMatchedMethod1(writer);
+    }
+
+    @Override
+    public void writeMatchedMethod2(BiConsumer<String, Color> writer)
+    {
+        M_getMatching().writeMatchedMethod2(writer);
+    }
+
+    /**
+     * Compute the alignment using the matcher.
+     */
+    private synchronized IMethodMatching M_getMatching()
+    {
+        if(m_matching == null) {
+            try {
+                m_matching = m_matcher.match(m_method1, m_method2);
+            } catch (MatchingException e) {
+                // the methods have already been processed before the classification, so this does not happen in practice
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return m_matching;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hirschberg's divide-and-conquer algorithm for the LCS problem. The first sequence is split in half, and the LCS lengths of the
+ * first half with every prefix of the second sequence, and of the second half with every suffix of the second sequence, determine
+ * where the second sequence must be split. Both halves are then solved recursively.
+ *
+ * Only two rows of LCS lengths are needed, so the working memory is linear in the length of the second sequence, instead of
+ * quadratic. The running time is still quadratic, but about twice that of {@link SequenceComparisonAlgos#computeLCS}.
+ */
+class HirschbergLCS<EqType>
+{
+    private final SequenceComparisonAlgos.IIndexPredicate<EqType> m_eqPredicate;
+
+    // LCS lengths of the first half with prefixes, and of the second half with suffixes, of the second sequence
+    private final int[] m_forward;
+    private final int[] m_backward;
+
+    private final List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> m_matches = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param size_2 The length of the second sequence.
+     * @param eq_predicate Compares an element of the first sequence with an element of the second sequence.
+     */
+    private HirschbergLCS(int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        m_eqPredicate = eq_predicate;
+        m_forward = new int[size_2 + 1];
+        m_backward = new int[size_2 + 1];
+    }
+
+    /**
+     * Compute the LCS of two sequences, whose elements are identified by their index.
+     *
+     * @return The matches that form the LCS, ordered by index.
+     */
+    static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(int size_1, int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        HirschbergLCS<EqType> algo = new HirschbergLCS<>(size_2, eq_predicate);
+        algo.M_solve(0, size_1, 0, size_2);
+
+        return algo.m_matches;
+    }
+
+    /**
+     * Solve the LCS problem for the specified ranges, and append the matches to the result.
+     *
+     * @param begin_1 The first index of the range of the first sequence.
+     * @param end_1 The index after the range of the first sequence.
+     * @param begin_2 The first index of the range of the second sequence.
+     * @param end_2 The index after the range of the second sequence.
+     */
+    private void M_solve(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        if(begin_1 == end_1 || begin_2 == end_2) {
+            return;
+        }
+
+        // a single element can match at most one element, take the last one like computeLCS does
+        if(end_1 - begin_1 == 1) {
+            for (int j = end_2 - 1; j >= begin_2; j--) {
+                EqType eq = m_eqPredicate.apply(begin_1, j);
+
+                if(eq != null) {
+                    m_matches.add(new SequenceComparisonAlgos.SequenceElementMatch<>(begin_1, j, eq));
+                    return;
+                }
+            }
+
+            return;
+        }
+
+        int middle_1 = (begin_1 + end_1) / 2;
+
+        M_computeForward(begin_1, middle_1, begin_2, end_2);
+        M_computeBackward(middle_1, end_1, begin_2, end_2);
+
+        // split the second range where the combined length is maximal
+        int length_2 = end_2 - begin_2;
+        int split = 0;
+        for (int j = 1; j <= length_2; j++) {
+            if(m_forward[j] + m_backward[j] >= m_forward[split] + m_backward[split]) {
+                split = j;
+            }
+        }
+
+        M_solve(begin_1, middle_1, begin_2, begin_2 + split);
+        M_solve(middle_1, end_1, begin_2 + split, end_2);
+    }
+
+    /**
+     * Fill {@link HirschbergLCS#m_forward}: element j will contain the LCS length of the first range and the first j elements of the second range.
+     */
+    private void M_computeForward(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        int length_2 = end_2 - begin_2;
+
+        for (int j = 0; j <= length_2; j++) {
+            m_forward[j] = 0;
+        }
+
+        for (int i = begin_1; i < end_1; i++) {
+            // the value of the previous row, one column to the left
+            int diagonal = 0;
+
+            for (int j = 1; j <= length_2; j++) {
+                int top = m_forward[j];
+
+                if(m_eqPredicate.apply(i, begin_2 + j - 1) != null) {
+                    m_forward[j] = diagonal + 1;
+                } else {
+                    m_forward[j] = Math.max(top, m_forward[j - 1]);
+                }
+
+                diagonal = top;
+            }
+        }
+    }
+
+    /**
+     * Fill {@link HirschbergLCS#m_backward}: element j will contain the LCS length of the first range and the elements of the second range from j onwards.
+     */
+    private void M_computeBackward(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        int length_2 = end_2 - begin_2;
+
+        for (int j = 0; j <= length_2; j++) {
+            m_backward[j] = 0;
+        }
+
+        for (int i = end_1 - 1; i >= begin_1; i--) {
+            // the value of the previous row, one column to the right
+            int diagonal = 0;
+
+            for (int j = length_2 - 1; j >= 0; j--) {
+                int bottom = m_backward[j];
+
+                if(m_eqPredicate.apply(i, begin_2 + j) != null) {
+                    m_backward[j] = diagonal + 1;
+                } else {
+                    m_backward[j] = Math.max(bottom, m_backward[j + 1]);
+                }
+
+                diagonal = bottom;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import java.util.*;
+
+/**
+ * Hunt-Szymanski algorithm for the LCS problem. Instead of filling the entire LCS matrix, only the pairs of matching elements are
+ * visited. For each length k, the algorithm keeps the smallest index in the second sequence at which a common subsequence of length k
+ * can end. Each matching pair updates this array using a binary search, so the running time is O((r + n) log n), where r is the
+ * number of matching pairs. This is much faster than a quadratic algorithm if most elements do not match, such as lines of code.
+ *
+ * The matching pairs are found using a key for each element: elements whose keys differ must never match. Elements with equal
+ * keys are still compared using the predicate, so different elements may share a key.
+ */
+class HuntSzymanskiLCS
+{
+    /**
+     * Compute the LCS of two sequences, whose elements are identified by their index.
+     *
+     * @param keys_1 The keys of the elements of the first sequence.
+     * @param keys_2 The keys of the elements of the second sequence.
+     * @param eq_predicate Compares an element of the first sequence with an element of the second sequence.
+     *
+     * @return The matches that form the LCS, ordered by index.
+     */
+    static <KeyType, EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(List<KeyType> keys_1, List<KeyType> keys_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        // the positions of each key in the second sequence, in ascending order
+        Map<KeyType, List<Integer>> positions = new HashMap<>();
+        for (int j = 0; j < keys_2.size(); j++) {
+            positions.computeIfAbsent(keys_2.get(j), k -> new ArrayList<>()).add(j);
+        }
+
+        // threshold[k] is the smallest index in the second sequence at which a common subsequence of length k + 1 ends,
+        // link[k] is the last match of that subsequence
+        int[] threshold = new int[Math.min(keys_1.size(), keys_2.size())];
+        int[] link = new int[threshold.length];
+        int length = 0;
+
+        // the matches of all subsequences, each match refers to the previous match of its subsequence
+        int[] match_idx_1 = new int[16];
+        int[] match_idx_2 = new int[16];
+        int[] match_previous = new int[16];
+        int match_count = 0;
+
+        for (int i = 0; i < keys_1.size(); i++) {
+            List<Integer> candidates = positions.get(keys_1.get(i));
+            if(candidates == null) {
+                continue;
+            }
+
+            // in descending order, so that a match cannot extend a match of the same element
+            for (int c = candidates.size() - 1; c >= 0; c--) {
+                int j = candidates.get(c);
+
+                if(eq_predicate.apply(i, j) == null) {
+                    continue;
+                }
+
+                // the first length whose threshold is not smaller than j
+                int k = Arrays.binarySearch(threshold, 0, length, j);
+                if(k >= 0) {
+                    // already reached at this position
+                    continue;
+                }
+                k = -k - 1;
+
+                if(match_count == match_idx_1.length) {
+                    match_idx_1 = Arrays.copyOf(match_idx_1, match_count * 2);
+                    match_idx_2 = Arrays.copyOf(match_idx_2, match_count * 2);
+                    match_previous = Arrays.copyOf(match_previous, match_count * 2);
+                }
+                match_idx_1[match_count] = i;
+                match_idx_2[match_count] = j;
+                match_previous[match_count] = k == 0 ? -1 : link[k - 1];
+
+                threshold[k] = j;
+                link[k] = match_count;
+                match_count++;
+
+                if(k == length) {
+                    length++;
+                }
+            }
+        }
+
+        // follow the links back from the last match of the longest subsequence
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> retval = new ArrayList<>(length);
+        for (int m = length == 0 ? -1 : link[length - 1]; m >= 0; m = match_previous[m]) {
+            retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(match_idx_1[m], match_idx_2[m], eq_predicate.apply(match_idx_1[m], match_idx_2[m])));
+        }
+
+        Collections.reverse(retval);
+
+        return retval;
+    }
+}
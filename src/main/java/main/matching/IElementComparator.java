@@ -0,0 +1,124 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+import main.method.Line;
+import main.method.Token;
+import main.method.TokenStream;
+
+import java.util.List;
+
+/**
+ * Compares the elements at the specified indices of two sequences. Unlike the predicates of {@link SequenceComparisonAlgos.IMatchingAlgo},
+ * the result is a primitive code instead of an object, so that the comparison of each cell of an LCS matrix only requires primitive operations.
+ */
+@FunctionalInterface
+public interface IElementComparator
+{
+    /**
+     * The elements do not match.
+     */
+    byte NO_MATCH = Token.NO_MATCH;
+
+    /**
+     * The elements form a parameterized match.
+     */
+    byte TYPE_2 = Token.TYPE_2_MATCH;
+
+    /**
+     * The elements are equal.
+     */
+    byte TYPE_1 = Token.TYPE_1_MATCH;
+
+    /**
+     * Compare an element of the first sequence with an element of the second sequence.
+     *
+     * @param idx_1 The index of the element of the first sequence.
+     * @param idx_2 The index of the element of the second sequence.
+     *
+     * @return {@link IElementComparator#NO_MATCH}, {@link IElementComparator#TYPE_2}, or {@link IElementComparator#TYPE_1}.
+     */
+    byte compare(int idx_1, int idx_2);
+
+    /**
+     * Convert a code into the corresponding clone type. {@link IElementComparator#NO_MATCH} corresponds with null.
+     */
+    static EnumCloneType toCloneType(byte code)
+    {
+        switch (code) {
+            case TYPE_1:
+                return EnumCloneType.TYPE_1;
+            case TYPE_2:
+                return EnumCloneType.TYPE_2;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Create a comparator for the tokens of two token streams. The tokens are compared using {@link Token#matchSymbols(int, int)}.
+     */
+    static IElementComparator forTokenStreams(TokenStream seq1, TokenStream seq2)
+    {
+        return (idx_1, idx_2) -> Token.matchSymbols(seq1.getSymbol(idx_1), seq2.getSymbol(idx_2));
+    }
+
+    /**
+     * Create a comparator for two lists of lines. The result is identical to that of {@link LineMatching#M_compareLines(Line, Line)}.
+     * The fingerprints and lengths of the lines are copied into arrays first, so that nearly all pairs are rejected by comparing a single number.
+     */
+    static IElementComparator forLines(List<Line> seq1, List<Line> seq2)
+    {
+        Line[] lines_1 = seq1.toArray(new Line[0]);
+        Line[] lines_2 = seq2.toArray(new Line[0]);
+
+        // the blinded fingerprint and the number of symbols of each line, combined into a single key
+        long[] keys_1 = new long[lines_1.length];
+        long[] keys_2 = new long[lines_2.length];
+        for (int i = 0; i < lines_1.length; i++) {
+            keys_1[i] = ((long) lines_1[i].getBlindedFingerprint() << Integer.SIZE) | lines_1[i].getSymbolCount();
+        }
+        for (int j = 0; j < lines_2.length; j++) {
+            keys_2[j] = ((long) lines_2[j].getBlindedFingerprint() << Integer.SIZE) | lines_2[j].getSymbolCount();
+        }
+
+        return (idx_1, idx_2) -> {
+            // lines that match always have equal fingerprints and lengths
+            if(keys_1[idx_1] != keys_2[idx_2]) {
+                return NO_MATCH;
+            }
+
+            Line line_1 = lines_1[idx_1];
+            Line line_2 = lines_2[idx_2];
+
+            // most matched lines are equal, which only requires comparing the symbol arrays
+            if(line_1.getExactFingerprint() == line_2.getExactFingerprint() && line_1.hasEqualSymbols(line_2)) {
+                return TYPE_1;
+            }
+
+            // the fingerprints may collide, so compare the lines token by token. The codes are ordered, so the weakest match is the minimum.
+            byte retval = TYPE_1;
+            for (int i = 0; i < line_1.getSymbolCount() && retval != NO_MATCH; i++) {
+                retval = (byte) Math.min(retval, Token.matchSymbols(line_1.getSymbol(i), line_2.getSymbol(i)));
+            }
+
+            return retval;
+        };
+    }
+}
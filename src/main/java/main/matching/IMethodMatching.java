@@ -73,54 +73,33 @@ public interface IMethodMatching
      * @param min_density The minimum density of the clone segment.
      */
      static EnumCloneType classifyMethod(EnumCloneType[] matches, int min_size, float min_density) {
-        // initialize to null, since we may not encounter any matches
-        EnumCloneType retval = null;
-
-        // init metrics to zero
-        int clone_segment_size = 0;
-        int type12_lines = 0;
-
-        // iterate over each element of the source code
-        for (EnumCloneType match : matches) {
-
-            // skip the non-matched prefix and suffix.
-            // There are not "null" elements inbetween the prefix and suffixes.
-            if(match == null) {
-                continue;
-            }
-
-            // any non-null line is part of the clone segment. The clone segment the number of lines in
-            clone_segment_size++;
-
-            // count the number of lines that are T1 or T2 matches. This is to calculate density.
-            if(match == EnumCloneType.TYPE_1 || match == EnumCloneType.TYPE_2) {
-                type12_lines++;
-            }
+        return new SegmentCounters(matches).classify(min_size, min_density);
+    }
 
-            if(retval == null) {
-                // take first line
-                retval = match;
-            } else {
-                retval = EnumCloneType.min(retval, match);
+    /**
+     * Helper method.
+     *
+     * Determine the minimum number of Type-1 or Type-2 elements that a method must contain, so that {@link IMethodMatching#classifyMethod(EnumCloneType[], int, float)}
+     * does not classify it as False Positive. The clone segment contains all these elements, and must contain at least "min_size" elements, so
+     * with k elements the density is at most k / max(k, min_size).
+     *
+     * A matching algorithm may use this to stop as soon as it is certain that the method will be classified as False Positive.
+     *
+     * @param min_size The minimum size of the clone segment.
+     * @param min_density The minimum density of the clone segment.
+     *
+     * @return The minimum number of Type-1 or Type-2 elements, or {@link Integer#MAX_VALUE} if every method is classified as False Positive.
+     */
+    static int getMinimumMatchCount(int min_size, float min_density) {
+        // at least one element must be matched, and with max(min_size, 1) elements the density can be 1
+        for (int k = 1; k <= Math.max(min_size, 1); k++) {
+            // the same comparison as in classifyMethod
+            if(!((k / (float) Math.max(k, min_size)) < min_density)) {
+                return k;
             }
         }
 
-        // if no matches were detected => false positive
-        if(retval == null) {
-            retval = EnumCloneType.FP;
-        }
-
-        // if the minimum size has been specified, and the size is lower that the minimum size => FP
-        if(clone_segment_size < min_size) {
-            retval = EnumCloneType.FP;
-        }
-
-        // if the minimum density has been specified, and the density is lower than the minimum density => FP
-        if((type12_lines / (float) clone_segment_size) < min_density) {
-            retval = EnumCloneType.FP;
-        }
-
-        return retval;
+        return Integer.MAX_VALUE;
     }
 
     /**
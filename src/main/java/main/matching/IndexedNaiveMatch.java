@@ -0,0 +1,144 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+
+import java.util.*;
+
+/**
+ * Implementation of the naive comparison algorithm that uses an inverted index, instead of comparing every pair of elements. The
+ * elements of the second sequence are grouped by two keys: a Type-1 key and a Type-2 key. Only pairs of elements that share one of
+ * these keys are compared.
+ *
+ * Pairs with equal Type-1 keys are visited first. Afterwards, pairs with equal Type-2 keys are only visited if one of the elements
+ * does not have a Type-1 match yet, since a Type-1 match always takes precedence over a Type-2 match for the matchers.
+ */
+class IndexedNaiveMatch
+{
+    /**
+     * Compute the matches between two sequences, whose elements are identified by their index.
+     *
+     * @param type_1_keys_1 The Type-1 keys of the first sequence.
+     * @param type_1_keys_2 The Type-1 keys of the second sequence.
+     * @param type_2_keys_1 The Type-2 keys of the first sequence, null for elements that cannot form a Type-2 match.
+     * @param type_2_keys_2 The Type-2 keys of the second sequence, null for elements that cannot form a Type-2 match.
+     * @param eq_predicate Compares an element of the first sequence with an element of the second sequence.
+     * @param max_matches_per_element The maximum number of matches of a single element. Set to 0 to ignore.
+     *
+     * @return The matches, ordered by the Type of the match, and then by index in the first sequence.
+     */
+    static List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> compute(List<?> type_1_keys_1, List<?> type_1_keys_2,
+                                                                                    List<?> type_2_keys_1, List<?> type_2_keys_2,
+                                                                                    SequenceComparisonAlgos.IIndexPredicate<EnumCloneType> eq_predicate,
+                                                                                    int max_matches_per_element)
+    {
+        int max_matches = max_matches_per_element <= 0 ? Integer.MAX_VALUE : max_matches_per_element;
+
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> retval = new ArrayList<>();
+
+        // the number of matches of each element, and whether it has a Type-1 match
+        int[] match_count_1 = new int[type_1_keys_1.size()];
+        int[] match_count_2 = new int[type_1_keys_2.size()];
+        boolean[] type_1_matched_1 = new boolean[type_1_keys_1.size()];
+        boolean[] type_1_matched_2 = new boolean[type_1_keys_2.size()];
+
+        // pairs with equal Type-1 keys
+        Map<Object, List<Integer>> type_1_index = M_buildIndex(type_1_keys_2);
+        for (int i = 0; i < type_1_keys_1.size(); i++) {
+            List<Integer> bucket = type_1_index.get(type_1_keys_1.get(i));
+            if(bucket == null) {
+                continue;
+            }
+
+            for (int j : bucket) {
+                if(match_count_1[i] >= max_matches) {
+                    break;
+                }
+                if(match_count_2[j] >= max_matches) {
+                    continue;
+                }
+
+                EnumCloneType eq = eq_predicate.apply(i, j);
+                if(eq == null) {
+                    continue;
+                }
+
+                retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(i, j, eq));
+                match_count_1[i]++;
+                match_count_2[j]++;
+
+                if(eq == EnumCloneType.TYPE_1) {
+                    type_1_matched_1[i] = true;
+                    type_1_matched_2[j] = true;
+                }
+            }
+        }
+
+        // pairs with equal Type-2 keys, that have not been visited yet
+        Map<Object, List<Integer>> type_2_index = M_buildIndex(type_2_keys_2);
+        for (int i = 0; i < type_2_keys_1.size(); i++) {
+            Object key = type_2_keys_1.get(i);
+            List<Integer> bucket = key == null ? null : type_2_index.get(key);
+            if(bucket == null) {
+                continue;
+            }
+
+            for (int j : bucket) {
+                if(match_count_1[i] >= max_matches) {
+                    break;
+                }
+                if(match_count_2[j] >= max_matches) {
+                    continue;
+                }
+
+                // already visited, or the match would not change the result of either element
+                if(Objects.equals(type_1_keys_1.get(i), type_1_keys_2.get(j)) || (type_1_matched_1[i] && type_1_matched_2[j])) {
+                    continue;
+                }
+
+                EnumCloneType eq = eq_predicate.apply(i, j);
+                if(eq == null) {
+                    continue;
+                }
+
+                retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(i, j, eq));
+                match_count_1[i]++;
+                match_count_2[j]++;
+            }
+        }
+
+        return retval;
+    }
+
+    /**
+     * Group the indices of the specified keys by key. Null keys are not included.
+     */
+    private static Map<Object, List<Integer>> M_buildIndex(List<?> keys)
+    {
+        Map<Object, List<Integer>> retval = new HashMap<>();
+
+        for (int j = 0; j < keys.size(); j++) {
+            if(keys.get(j) != null) {
+                retval.computeIfAbsent(keys.get(j), k -> new ArrayList<>()).add(j);
+            }
+        }
+
+        return retval;
+    }
+}
@@ -35,14 +35,21 @@ import java.util.stream.Collectors;
  */
 public class LineMatching implements IMethodMatching
 {
-    // the lines per method
+    // the lines per method, null in classification-only mode
     private final List<Line> m_method1Lines;
     private final List<Line> m_method2Lines;
 
-    // the matches for each line
+    // the matches for each line, null in classification-only mode
     private final EnumCloneType[] m_method1Matched;
     private final EnumCloneType[] m_method2Matched;
 
+    // the numbers needed for the classification of each method
+    private final SegmentCounters m_method1Counters;
+    private final SegmentCounters m_method2Counters;
+
+    // rebuilds the full matching when the methods are displayed in classification-only mode, null otherwise
+    private final IMethodMatching m_deferredMatching;
+
     private final int m_minSize;
     private final float m_minDensity;
 
@@ -60,43 +67,88 @@ public class LineMatching implements IMethodMatching
      * @throws MatchingException In case there is an IO error, or a parsing error.
      */
     public LineMatching(Method method_1, Method method_2, SequenceComparisonAlgos.IMatchingAlgo<Line, EnumCloneType> matching_algo, int min_size, float min_density, boolean braces_preprocessing, boolean braces_postprocessing) throws MatchingException
+    {
+        this(method_1, method_2, matching_algo, min_size, min_density, braces_preprocessing, braces_postprocessing, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param method_1 The first method.
+     * @param method_2 The second method.
+     * @param matching_algo The algorithm that will be used to match lines of the first method with lines of the second method.
+     * @param min_size The minimum size of the clone segment. The size of such a segment is the amount of lines between the first and last line of the segment. Set to 0 to ignore.
+     * @param min_density The minimum density of the clone segment. This is the number of Type-1 or Type-2 matched lines divided by the segment size. Set to 0.0 to ignore.
+     * @param braces_preprocessing Remove all braces before the comparison algorithm is applied.
+     * @param braces_postprocessing Remove all braces after the comparison algorithm is applied.
+     * @param classification_only Only keep the numbers that are needed for the classification. The lines and their matches are released
+     *                            after the constructor, and the matching is computed again when the methods are displayed.
+     *
+     * @throws MatchingException In case there is an IO error, or a parsing error.
+     */
+    public LineMatching(Method method_1, Method method_2, SequenceComparisonAlgos.IMatchingAlgo<Line, EnumCloneType> matching_algo, int min_size, float min_density, boolean braces_preprocessing, boolean braces_postprocessing, boolean classification_only) throws MatchingException
     {
         try {
             m_minSize = min_size;
             m_minDensity = min_density;
 
             // get lines, and apply preprocessing to braces at this stage if needed
+            List<Line> method1_lines;
+            List<Line> method2_lines;
             if(braces_preprocessing) {
-                m_method1Lines = M_filterBraceLines(method_1.getLines());
-                m_method2Lines = M_filterBraceLines(method_2.getLines());
+                method1_lines = M_filterBraceLines(method_1.getLines());
+                method2_lines = M_filterBraceLines(method_2.getLines());
             } else {
-                m_method1Lines = method_1.getLines();
-                m_method2Lines = method_2.getLines();
+                method1_lines = method_1.getLines();
+                method2_lines = method_2.getLines();
             }
 
             // initialise arrays of matches, all initially set to null
-            m_method1Matched = new EnumCloneType[m_method1Lines.size()];
-            m_method2Matched = new EnumCloneType[m_method2Lines.size()];
+            EnumCloneType[] method1_matched = new EnumCloneType[method1_lines.size()];
+            EnumCloneType[] method2_matched = new EnumCloneType[method2_lines.size()];
 
-            // we apply the comparison algorithm
-            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches = matching_algo.compute(m_method1Lines, m_method2Lines, LineMatching::M_compareLines);
+            // we apply the comparison algorithm, the LCS compares the lines without creating an object per cell
+            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches;
+            if(matching_algo == SequenceComparisonAlgos.LINE_LCS) {
+                matches = SequenceComparisonAlgos.computeLCS(method1_lines.size(), method2_lines.size(), IElementComparator.forLines(method1_lines, method2_lines));
+            } else {
+                matches = matching_algo.compute(method1_lines, method2_lines, LineMatching::M_compareLines);
+            }
 
             // for each possible match that was found by the algorithm, try to update the match arrays
             for (SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType> match : matches) {
                 // we take "match" here, since the algo may both give a single element a Type-1 or Type-2 match. We will select the Type-1 match in such a case.
-                m_method1Matched[match.idx_1] = EnumCloneType.max(m_method1Matched[match.idx_1], match.eq_type);
-                m_method2Matched[match.idx_2] = EnumCloneType.max(m_method2Matched[match.idx_2], match.eq_type);
+                method1_matched[match.idx_1] = EnumCloneType.max(method1_matched[match.idx_1], match.eq_type);
+                method2_matched[match.idx_2] = EnumCloneType.max(method2_matched[match.idx_2], match.eq_type);
             }
 
             // process braces at this stage if needed
             if(braces_postprocessing) {
-                M_filterBracketMatches(m_method1Lines, m_method1Matched);
-                M_filterBracketMatches(m_method2Lines, m_method2Matched);
+                M_filterBracketMatches(method1_lines, method1_matched);
+                M_filterBracketMatches(method2_lines, method2_matched);
             }
 
             // fill in any gaps with Type-3
-            IMethodMatching.fillInType3Matches(m_method1Matched);
-            IMethodMatching.fillInType3Matches(m_method2Matched);
+            IMethodMatching.fillInType3Matches(method1_matched);
+            IMethodMatching.fillInType3Matches(method2_matched);
+
+            m_method1Counters = new SegmentCounters(method1_matched);
+            m_method2Counters = new SegmentCounters(method2_matched);
+
+            if(classification_only) {
+                m_method1Lines = null;
+                m_method2Lines = null;
+                m_method1Matched = null;
+                m_method2Matched = null;
+                m_deferredMatching = new DeferredMethodMatching((method1, method2) -> new LineMatching(method1, method2, matching_algo, min_size, min_density, braces_preprocessing, braces_postprocessing),
+                        method_1, method_2, classify());
+            } else {
+                m_method1Lines = method1_lines;
+                m_method2Lines = method2_lines;
+                m_method1Matched = method1_matched;
+                m_method2Matched = method2_matched;
+                m_deferredMatching = null;
+            }
 
         } catch(IOException | ParseProblemException e) {
             throw new MatchingException(e);
@@ -106,38 +158,32 @@ public class LineMatching implements IMethodMatching
     /**
      * Filter all "}" lines.
      */
-    private static List<Line> M_filterBraceLines(List<Line> lines) {
+    static List<Line> M_filterBraceLines(List<Line> lines) {
         return lines.stream().filter(x -> !x.getLineContent().equalsIgnoreCase("}") && !x.getLineContent().equalsIgnoreCase("{")).collect(Collectors.toList());
     }
 
     /**
      * Compare the two lines and determine if there is a match between the lines.
      */
-    private static EnumCloneType M_compareLines(Line line_A, Line line_B) {
-        // get tokens
-        List<Token> tokens_A = line_A.getTokens();
-        List<Token> tokens_B = line_B.getTokens();
-
-        // remove final keywords since it may prevent clone detection
-        tokens_A.removeIf(t -> t.getContents().equals("final"));
-        tokens_B.removeIf(t -> t.getContents().equals("final"));
-
-        // tokens don't have equal length => no match
-        if(tokens_A.size() != tokens_B.size()) {
+    static EnumCloneType M_compareLines(Line line_A, Line line_B) {
+        // lines that match always have equal fingerprints, this rejects nearly all pairs
+        if(line_A.getBlindedFingerprint() != line_B.getBlindedFingerprint() || line_A.getSymbolCount() != line_B.getSymbolCount()) {
             return null;
         }
 
+        // most matched lines are equal, which only requires comparing the symbol arrays
+        if(line_A.getExactFingerprint() == line_B.getExactFingerprint() && line_A.hasEqualSymbols(line_B)) {
+            return EnumCloneType.TYPE_1;
+        }
+
         // keeps track of the currently best-possible type of match
         // note that if both lines are empty, this will be matched as type 1
         EnumCloneType current = EnumCloneType.TYPE_1;
 
-        // compare the lines token by token
-        for(int i = 0; i < line_A.getTokens().size(); i++) {
-            Token A = tokens_A.get(i);
-            Token B = tokens_B.get(i);
-
+        // the fingerprints may collide, so compare the lines token by token
+        for(int i = 0; i < line_A.getSymbolCount(); i++) {
             // compare the token, and see how strictly we can match them
-            current = EnumCloneType.min(current, Token.compareTokens(A, B, false));
+            current = EnumCloneType.min(current, Token.compareSymbols(line_A.getSymbol(i), line_B.getSymbol(i)));
 
             // no match between the lines
             if(current == null) {
@@ -154,7 +200,7 @@ public class LineMatching implements IMethodMatching
      *
      * Result will be stored in the "line_matches" parameter.
      */
-    private static void M_filterBracketMatches(List<Line> lines, EnumCloneType[] line_matches) {
+    static void M_filterBracketMatches(List<Line> lines, EnumCloneType[] line_matches) {
         // lines that will be deleted in the second pass
         boolean[] marked_for_deletion = new boolean[lines.size()];
 
@@ -216,8 +262,8 @@ public class LineMatching implements IMethodMatching
     public EnumCloneType classify()
     {
         // classify each method separately
-        EnumCloneType method1_type = IMethodMatching.classifyMethod(m_method1Matched, m_minSize, m_minDensity);
-        EnumCloneType method2_type = IMethodMatching.classifyMethod(m_method2Matched, m_minSize, m_minDensity);
+        EnumCloneType method1_type = m_method1Counters.classify(m_minSize, m_minDensity);
+        EnumCloneType method2_type = m_method2Counters.classify(m_minSize, m_minDensity);
 
         // take least strict type
         return EnumCloneType.min(method1_type, method2_type);
@@ -226,13 +272,21 @@ public class LineMatching implements IMethodMatching
     @Override
     public void writeMatchedMethod1(BiConsumer<String, Color> writer)
     {
-        M_writeMethod(writer, m_method1Lines, m_method1Matched);
+        if(m_deferredMatching != null) {
+            m_deferredMatching.writeMatchedMethod1(writer);
+        } else {
+            M_writeMethod(writer, m_method1Lines, m_method1Matched);
+        }
     }
 
     @Override
     public void writeMatchedMethod2(BiConsumer<String, Color> writer)
     {
-        M_writeMethod(writer, m_method2Lines, m_method2Matched);
+        if(m_deferredMatching != null) {
+            m_deferredMatching.writeMatchedMethod2(writer);
+        } else {
+            M_writeMethod(writer, m_method2Lines, m_method2Matched);
+        }
     }
 
     /**
@@ -0,0 +1,142 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import com.github.javaparser.ParseProblemException;
+import main.method.Method;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matcher that compares two methods at several granularities at once, for example on lines, tokens, and both tree traversals. Each method is
+ * parsed once, and all representations are derived from that AST before the matchers of the granularities are applied, see {@link Method#preprocess()}.
+ *
+ * This is not an {@link IMatcher}: the matchings cannot be combined into a single classification, so each granularity must be retrieved
+ * explicitly, see {@link Matching#getMatching(String)}.
+ */
+public class MultiGranularityMatcher
+{
+    // the matcher of each granularity, in the order in which they were specified
+    private final Map<String, IMatcher> m_matchers;
+
+    /**
+     * Constructor.
+     *
+     * @param matchers The matcher of each granularity, by the name of the granularity. At least one granularity must be specified.
+     *
+     * @throws IllegalArgumentException If no granularity is specified.
+     */
+    public MultiGranularityMatcher(Map<String, IMatcher> matchers) throws IllegalArgumentException
+    {
+        if(matchers.isEmpty()) {
+            throw new IllegalArgumentException("At least one granularity must be specified.");
+        }
+
+        m_matchers = new LinkedHashMap<>(matchers);
+    }
+
+    /**
+     * The names of the granularities, in the order in which they were specified.
+     */
+    public List<String> getGranularities()
+    {
+        return new ArrayList<>(m_matchers.keySet());
+    }
+
+    /**
+     * The matcher of the specified granularity.
+     */
+    public IMatcher getMatcher(String granularity)
+    {
+        return m_matchers.get(granularity);
+    }
+
+    /**
+     * Match the two specified methods at each granularity. An error at one granularity does not affect the other granularities, it is
+     * reported by {@link Matching#getMatching(String)}.
+     *
+     * @throws MatchingException If the methods cannot be matched at any granularity. This is the error of the first granularity.
+     */
+    public Matching match(Method method1, Method method2) throws MatchingException
+    {
+        try {
+            method1.preprocess();
+            method2.preprocess();
+        } catch (IOException | ParseProblemException e) {
+            // not every representation is affected by the error, each matcher reports it again for its own granularity
+        }
+
+        Map<String, IMethodMatching> matchings = new LinkedHashMap<>();
+        Map<String, MatchingException> errors = new HashMap<>();
+
+        for (Map.Entry<String, IMatcher> entry : m_matchers.entrySet()) {
+            try {
+                matchings.put(entry.getKey(), entry.getValue().match(method1, method2));
+            } catch (MatchingException e) {
+                errors.put(entry.getKey(), e);
+            }
+        }
+
+        if(matchings.isEmpty()) {
+            throw errors.get(m_matchers.keySet().iterator().next());
+        }
+
+        return new Matching(matchings, errors);
+    }
+
+    /**
+     * The matchings of two methods at each granularity.
+     */
+    public static class Matching
+    {
+        private final Map<String, IMethodMatching> m_matchings;
+        private final Map<String, MatchingException> m_errors;
+
+        /**
+         * Constructor.
+         *
+         * @param matchings The matchings of the granularities at which the methods could be matched, in order.
+         * @param errors The errors of the other granularities.
+         */
+        private Matching(Map<String, IMethodMatching> matchings, Map<String, MatchingException> errors)
+        {
+            m_matchings = matchings;
+            m_errors = errors;
+        }
+
+        /**
+         * The matching of the specified granularity.
+         *
+         * @throws MatchingException The error that occurred when the methods were matched at the specified granularity.
+         */
+        public IMethodMatching getMatching(String granularity) throws MatchingException
+        {
+            MatchingException error = m_errors.get(granularity);
+            if(error != null) {
+                throw error;
+            }
+
+            return m_matchings.get(granularity);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Myers' O((n+m)D) difference algorithm, where D is the number of elements that are not part of the LCS. For each number of
+ * edits d, the algorithm determines how far along each diagonal k of the edit graph a path with d edits can reach, and then
+ * follows matching elements along that diagonal. Sequences that differ in only a few elements are therefore aligned in
+ * nearly linear time.
+ *
+ * The furthest reaching positions of each step are kept for the traceback, which requires O(D^2) memory. If this would exceed the
+ * memory of a quadratic algorithm, the sequences are too different for this algorithm to be useful, and {@link RollingRowLCS} is used instead.
+ */
+class MyersLCS
+{
+    /**
+     * Compute the LCS of two sequences, whose elements are identified by their index.
+     *
+     * @return The matches that form the LCS, ordered by index.
+     */
+    static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(int size_1, int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        int max_edits = size_1 + size_2;
+
+        // the budget of stored positions, about the size of the traceback matrix of RollingRowLCS
+        long budget = Math.max((long) size_1 * size_2 / 16, 1024);
+        long stored = 0;
+
+        // furthest[k + offset] is the furthest index in the first sequence that can be reached on diagonal k = x - y
+        int offset = max_edits + 1;
+        int[] furthest = new int[2 * offset + 1];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max_edits; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+
+                // extend the path of the neighbouring diagonal that reaches furthest
+                if(k == -d || (k != d && furthest[k - 1 + offset] < furthest[k + 1 + offset])) {
+                    x = furthest[k + 1 + offset];
+                } else {
+                    x = furthest[k - 1 + offset] + 1;
+                }
+
+                int y = x - k;
+
+                // follow the matching elements
+                while(x < size_1 && y < size_2 && eq_predicate.apply(x, y) != null) {
+                    x++;
+                    y++;
+                }
+
+                furthest[k + offset] = x;
+
+                if(x >= size_1 && y >= size_2) {
+                    return M_traceback(size_1, size_2, eq_predicate, trace, d);
+                }
+            }
+
+            // keep the positions of diagonals -d..d for the traceback
+            int[] snapshot = new int[2 * d + 1];
+            System.arraycopy(furthest, -d + offset, snapshot, 0, 2 * d + 1);
+            trace.add(snapshot);
+
+            stored += snapshot.length;
+            if(stored > budget) {
+                return RollingRowLCS.compute(size_1, size_2, eq_predicate);
+            }
+        }
+
+        // unreachable, a path with size_1 + size_2 edits always exists
+        throw new IllegalStateException("No edit path found.");
+    }
+
+    /**
+     * Reconstruct the matches from the stored positions.
+     *
+     * @param trace The positions of each step, the element for step d contains the positions on diagonals -d..d.
+     * @param edits The number of edits of the path that reached the end.
+     */
+    private static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> M_traceback(int size_1, int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate, List<int[]> trace, int edits)
+    {
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> retval = new ArrayList<>();
+
+        int x = size_1;
+        int y = size_2;
+
+        for (int d = edits; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+
+            // the diagonal from which this step was taken, previous[k' + d - 1] is the position on diagonal k' after step d - 1
+            int previous_k;
+            if(k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1])) {
+                previous_k = k + 1;
+            } else {
+                previous_k = k - 1;
+            }
+
+            int previous_x = previous[previous_k + d - 1];
+            int previous_y = previous_x - previous_k;
+
+            // the matching elements that were followed after the edit
+            while(x > previous_x && y > previous_y) {
+                x--;
+                y--;
+                retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(x, y, eq_predicate.apply(x, y)));
+            }
+
+            x = previous_x;
+            y = previous_y;
+        }
+
+        // the matching elements at the start of both sequences
+        while(x > 0 && y > 0) {
+            x--;
+            y--;
+            retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(x, y, eq_predicate.apply(x, y)));
+        }
+
+        Collections.reverse(retval);
+
+        return retval;
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import java.util.*;
+
+/**
+ * Patience diff. Elements whose key occurs exactly once in both sequences are used as anchors: the longest sequence of such
+ * elements that appears in the same order in both sequences is matched first, using patience sorting. The ranges between
+ * consecutive anchors are then solved recursively. Common elements at the start and the end of a range are always matched
+ * directly, and a range without anchors is solved by {@link RollingRowLCS}.
+ *
+ * Repetitive elements, such as closing braces, therefore cannot pull the alignment away from the distinctive elements. Since the
+ * anchors split the sequences into small ranges, the running time is nearly linear for long sequences. The result is a common
+ * subsequence, but not necessarily a longest one.
+ */
+class PatienceDiff<EqType>
+{
+    private final List<?> m_keys1;
+    private final List<?> m_keys2;
+    private final SequenceComparisonAlgos.IIndexPredicate<EqType> m_eqPredicate;
+
+    private final List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> m_matches = new ArrayList<>();
+
+    /**
+     * Constructor.
+     */
+    private PatienceDiff(List<?> keys_1, List<?> keys_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        m_keys1 = keys_1;
+        m_keys2 = keys_2;
+        m_eqPredicate = eq_predicate;
+    }
+
+    /**
+     * Align two sequences, whose elements are identified by their index.
+     *
+     * @param keys_1 The keys of the elements of the first sequence.
+     * @param keys_2 The keys of the elements of the second sequence.
+     * @param eq_predicate Compares an element of the first sequence with an element of the second sequence.
+     *
+     * @return The matches, ordered by index.
+     */
+    static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(List<?> keys_1, List<?> keys_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        PatienceDiff<EqType> algo = new PatienceDiff<>(keys_1, keys_2, eq_predicate);
+        algo.M_solve(0, keys_1.size(), 0, keys_2.size());
+
+        return algo.m_matches;
+    }
+
+    /**
+     * Align the specified ranges, and append the matches to the result.
+     *
+     * @param begin_1 The first index of the range of the first sequence.
+     * @param end_1 The index after the range of the first sequence.
+     * @param begin_2 The first index of the range of the second sequence.
+     * @param end_2 The index after the range of the second sequence.
+     */
+    private void M_solve(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        // common prefix
+        while(begin_1 < end_1 && begin_2 < end_2) {
+            EqType eq = m_eqPredicate.apply(begin_1, begin_2);
+            if(eq == null) {
+                break;
+            }
+
+            m_matches.add(new SequenceComparisonAlgos.SequenceElementMatch<>(begin_1, begin_2, eq));
+            begin_1++;
+            begin_2++;
+        }
+
+        // common suffix, which is added after the middle has been solved
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> suffix_matches = new ArrayList<>();
+        while(begin_1 < end_1 && begin_2 < end_2) {
+            EqType eq = m_eqPredicate.apply(end_1 - 1, end_2 - 1);
+            if(eq == null) {
+                break;
+            }
+
+            suffix_matches.add(new SequenceComparisonAlgos.SequenceElementMatch<>(end_1 - 1, end_2 - 1, eq));
+            end_1--;
+            end_2--;
+        }
+
+        if(begin_1 < end_1 && begin_2 < end_2) {
+            List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> anchors = M_findAnchors(begin_1, end_1, begin_2, end_2);
+
+            if(anchors.isEmpty()) {
+                M_solveLCS(begin_1, end_1, begin_2, end_2);
+            } else {
+                // solve the ranges between the anchors
+                int previous_1 = begin_1;
+                int previous_2 = begin_2;
+                for (SequenceComparisonAlgos.SequenceElementMatch<EqType> anchor : anchors) {
+                    M_solve(previous_1, anchor.idx_1, previous_2, anchor.idx_2);
+                    m_matches.add(anchor);
+
+                    previous_1 = anchor.idx_1 + 1;
+                    previous_2 = anchor.idx_2 + 1;
+                }
+                M_solve(previous_1, end_1, previous_2, end_2);
+            }
+        }
+
+        // the suffix was matched from back to front
+        Collections.reverse(suffix_matches);
+        m_matches.addAll(suffix_matches);
+    }
+
+    /**
+     * Find the longest sequence of matching elements that are unique in both ranges, and that appear in the same order in both ranges.
+     *
+     * @return The anchors, ordered by index.
+     */
+    private List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> M_findAnchors(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        // the number of occurrences of each key in the second range, and the index of the last one
+        Map<Object, int[]> occurrences_2 = new HashMap<>();
+        for (int j = begin_2; j < end_2; j++) {
+            int[] occurrence = occurrences_2.computeIfAbsent(m_keys2.get(j), k -> new int[2]);
+            occurrence[0]++;
+            occurrence[1] = j;
+        }
+
+        Map<Object, Integer> occurrences_1 = new HashMap<>();
+        for (int i = begin_1; i < end_1; i++) {
+            occurrences_1.merge(m_keys1.get(i), 1, Integer::sum);
+        }
+
+        // the matching pairs of unique elements, ordered by the index in the first range
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> candidates = new ArrayList<>();
+        for (int i = begin_1; i < end_1; i++) {
+            int[] occurrence = occurrences_2.get(m_keys1.get(i));
+            if(occurrence == null || occurrence[0] != 1 || occurrences_1.get(m_keys1.get(i)) != 1) {
+                continue;
+            }
+
+            EqType eq = m_eqPredicate.apply(i, occurrence[1]);
+            if(eq != null) {
+                candidates.add(new SequenceComparisonAlgos.SequenceElementMatch<>(i, occurrence[1], eq));
+            }
+        }
+
+        // patience sorting: the longest increasing subsequence of the indices in the second range
+        // top[p] is the candidate on top of pile p, previous[c] is the top of the pile to the left when candidate c was placed
+        int[] top = new int[candidates.size()];
+        int[] previous = new int[candidates.size()];
+        int piles = 0;
+
+        for (int c = 0; c < candidates.size(); c++) {
+            int idx_2 = candidates.get(c).idx_2;
+
+            // the leftmost pile whose top has a larger index
+            int low = 0;
+            int high = piles;
+            while(low < high) {
+                int middle = (low + high) / 2;
+                if(candidates.get(top[middle]).idx_2 < idx_2) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previous[c] = low == 0 ? -1 : top[low - 1];
+            top[low] = c;
+
+            if(low == piles) {
+                piles++;
+            }
+        }
+
+        // follow the candidates back from the top of the last pile
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> retval = new ArrayList<>(piles);
+        for (int c = piles == 0 ? -1 : top[piles - 1]; c >= 0; c = previous[c]) {
+            retval.add(candidates.get(c));
+        }
+
+        Collections.reverse(retval);
+
+        return retval;
+    }
+
+    /**
+     * Solve a range without anchors by computing the LCS.
+     */
+    private void M_solveLCS(int begin_1, int end_1, int begin_2, int end_2)
+    {
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> matches = RollingRowLCS.compute(
+                end_1 - begin_1,
+                end_2 - begin_2,
+                (i, j) -> m_eqPredicate.apply(begin_1 + i, begin_2 + j)
+        );
+
+        for (SequenceComparisonAlgos.SequenceElementMatch<EqType> match : matches) {
+            m_matches.add(new SequenceComparisonAlgos.SequenceElementMatch<>(begin_1 + match.idx_1, begin_2 + match.idx_2, match.eq_type));
+        }
+    }
+}
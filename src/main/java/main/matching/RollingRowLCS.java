@@ -0,0 +1,253 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LCS engine that only uses primitive arrays. The LCS lengths are kept in two rolling rows, and for each cell of the LCS matrix the
+ * direction of the traceback is stored in two bits. The arrays are kept per thread and reused by later calls.
+ *
+ * The traceback follows the same rules as the original linked-cell implementation: a match always continues diagonally, otherwise
+ * the cell above is preferred over the cell to the left if its LCS length is at least as large. The result is therefore identical.
+ */
+class RollingRowLCS
+{
+    // traceback directions
+    private static final int DIAGONAL = 1;
+    private static final int UP = 2;
+    private static final int LEFT = 3;
+
+    // cells per element of the direction array
+    private static final int CELLS_PER_LONG = Long.SIZE / 2;
+
+    // direction arrays that are larger than this number of elements are not kept for later calls
+    private static final int MAX_RETAINED_DIRECTIONS = 1 << 20;
+
+    private static final ThreadLocal<RollingRowLCS> SCRATCH = ThreadLocal.withInitial(RollingRowLCS::new);
+
+    private int[] m_previousRow = new int[0];
+    private int[] m_currentRow = new int[0];
+    private long[] m_directions = new long[0];
+
+    /**
+     * Compute the LCS of two sequences, whose elements are identified by their index.
+     *
+     * @return The matches that form the LCS, ordered by index.
+     */
+    static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(int size_1, int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate)
+    {
+        return compute(size_1, size_2, eq_predicate, 0);
+    }
+
+    /**
+     * Compute the LCS of two sequences, whose elements are identified by their index. The computation is abandoned as soon as the LCS
+     * cannot contain the specified number of matches anymore: after each row i, the maximum over all columns j of L(i, j) plus the
+     * smaller of the number of remaining rows and remaining columns is an upper bound of the final LCS length, see
+     * {@link RollingRowLCS#M_boundColumn(int, int)}.
+     *
+     * @param min_matches The minimum number of matches.
+     *
+     * @return The matches that form the LCS, ordered by index. Null if the LCS contains fewer than "min_matches" matches.
+     */
+    static <EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> compute(int size_1, int size_2, SequenceComparisonAlgos.IIndexPredicate<EqType> eq_predicate, int min_matches)
+    {
+        // the matrix only needs to know whether there is a match, the information about the match is only retrieved for the LCS
+        int[] pairs = M_computePairs(size_1, size_2, (i, j) -> eq_predicate.apply(i, j) == null ? IElementComparator.NO_MATCH : IElementComparator.TYPE_1, min_matches);
+        if(pairs == null) {
+            return null;
+        }
+
+        List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> retval = new ArrayList<>(pairs.length / 2);
+        for (int k = 0; k < pairs.length; k += 2) {
+            retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(pairs[k], pairs[k + 1], eq_predicate.apply(pairs[k], pairs[k + 1])));
+        }
+
+        return retval;
+    }
+
+    /**
+     * Variant of {@link RollingRowLCS#compute(int, int, SequenceComparisonAlgos.IIndexPredicate, int)} that uses a primitive comparator.
+     *
+     * @param min_matches The minimum number of matches.
+     *
+     * @return The matches that form the LCS, ordered by index. Null if the LCS contains fewer than "min_matches" matches.
+     */
+    static List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> computeWithComparator(int size_1, int size_2, IElementComparator comparator, int min_matches)
+    {
+        int[] pairs = M_computePairs(size_1, size_2, comparator, min_matches);
+        if(pairs == null) {
+            return null;
+        }
+
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> retval = new ArrayList<>(pairs.length / 2);
+        for (int k = 0; k < pairs.length; k += 2) {
+            retval.add(new SequenceComparisonAlgos.SequenceElementMatch<>(pairs[k], pairs[k + 1], IElementComparator.toCloneType(comparator.compare(pairs[k], pairs[k + 1]))));
+        }
+
+        return retval;
+    }
+
+    /**
+     * Compute the LCS, see {@link RollingRowLCS#computeWithComparator(int, int, IElementComparator, int)}.
+     *
+     * @return The indices of the matched elements, ordered by index: element 2k and 2k+1 contain the indices of match k in the first
+     *         and the second sequence. Null if the LCS contains fewer than "min_matches" matches.
+     */
+    private static int[] M_computePairs(int size_1, int size_2, IElementComparator comparator, int min_matches)
+    {
+        if(Math.min(size_1, size_2) < min_matches) {
+            return null;
+        }
+
+        if(size_1 == 0 || size_2 == 0) {
+            return new int[0];
+        }
+
+        RollingRowLCS scratch = SCRATCH.get();
+        long cell_count = (long) size_1 * size_2;
+        int[] previous_row = scratch.M_getRow(false, size_2 + 1);
+        int[] current_row = scratch.M_getRow(true, size_2 + 1);
+        long[] directions = scratch.M_getDirections((int) ((cell_count + CELLS_PER_LONG - 1) / CELLS_PER_LONG));
+
+        // the row before the first row has length zero everywhere
+        for (int j = 0; j <= size_2; j++) {
+            previous_row[j] = 0;
+        }
+
+        // fill the LCS lengths row by row, element j+1 of a row corresponds with column j
+        for (int i = 0; i < size_1; i++) {
+            current_row[0] = 0;
+
+            for (int j = 0; j < size_2; j++) {
+                int direction;
+
+                if(comparator.compare(i, j) != IElementComparator.NO_MATCH) {
+                    current_row[j + 1] = previous_row[j] + 1;
+                    direction = DIAGONAL;
+                } else if(previous_row[j + 1] >= current_row[j]) {
+                    current_row[j + 1] = previous_row[j + 1];
+                    direction = UP;
+                } else {
+                    current_row[j + 1] = current_row[j];
+                    direction = LEFT;
+                }
+
+                long cell = (long) i * size_2 + j;
+                directions[(int) (cell / CELLS_PER_LONG)] |= (long) direction << (2 * (cell % CELLS_PER_LONG));
+            }
+
+            int[] swap = previous_row;
+            previous_row = current_row;
+            current_row = swap;
+
+            // an LCS of both full sequences can be split at this row: L(i, j) + min(remaining rows, remaining columns) bounds it for every j
+            int remaining_rows = size_1 - 1 - i;
+            if(previous_row[M_boundColumn(size_2, remaining_rows)] + Math.min(remaining_rows, size_2) < min_matches) {
+                scratch.M_release(directions);
+                return null;
+            }
+        }
+
+        int length = previous_row[size_2];
+
+        // follow the directions back from the last cell, until all matches have been found
+        int[] retval = new int[2 * length];
+        int remaining = length;
+        int i = size_1 - 1;
+        int j = size_2 - 1;
+        while(remaining > 0) {
+            long cell = (long) i * size_2 + j;
+            int direction = (int) (directions[(int) (cell / CELLS_PER_LONG)] >>> (2 * (cell % CELLS_PER_LONG))) & 3;
+
+            if(direction == DIAGONAL) {
+                remaining--;
+                retval[2 * remaining] = i;
+                retval[2 * remaining + 1] = j;
+                i--;
+                j--;
+            } else if(direction == UP) {
+                i--;
+            } else {
+                j--;
+            }
+        }
+
+        scratch.M_release(directions);
+
+        return retval;
+    }
+
+    /**
+     * The column j, counted as a prefix length of the second sequence, for which L(i, j) + min(remaining_rows, size_2 - j) is maximal.
+     * Left of column size_2 - remaining_rows, the second term is constant and L(i, j) can only grow. Right of it, L(i, j) grows by at
+     * most one per column, while the second term shrinks by exactly one. The maximum over the row is therefore found in a single cell.
+     */
+    static int M_boundColumn(int size_2, int remaining_rows)
+    {
+        return Math.max(0, size_2 - remaining_rows);
+    }
+
+    /**
+     * Retrieve one of the two rows, with at least the specified size.
+     */
+    private int[] M_getRow(boolean current, int size)
+    {
+        if(current) {
+            if(m_currentRow.length < size) {
+                m_currentRow = new int[size];
+            }
+            return m_currentRow;
+        } else {
+            if(m_previousRow.length < size) {
+                m_previousRow = new int[size];
+            }
+            return m_previousRow;
+        }
+    }
+
+    /**
+     * Retrieve a cleared direction array with at least the specified size.
+     */
+    private long[] M_getDirections(int size)
+    {
+        if(m_directions.length < size) {
+            return new long[size];
+        }
+
+        // only the part that will be used needs to be cleared
+        for (int i = 0; i < size; i++) {
+            m_directions[i] = 0;
+        }
+
+        return m_directions;
+    }
+
+    /**
+     * Keep the specified direction array for later calls, unless it is too large.
+     */
+    private void M_release(long[] directions)
+    {
+        if(directions.length > m_directions.length && directions.length <= MAX_RETAINED_DIRECTIONS) {
+            m_directions = directions;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import main.clone.EnumCloneType;
+
+/**
+ * The numbers that {@link IMethodMatching#classifyMethod(EnumCloneType[], int, float)} derives from the matches of a single method.
+ * A matching that only needs to be classified can keep these, instead of the comparison units and their matches.
+ */
+class SegmentCounters
+{
+    // the number of non-null elements, which form the clone segment
+    private final int m_segmentSize;
+
+    // the number of Type-1 or Type-2 elements
+    private final int m_type12Count;
+
+    // the least strict type of the non-null elements, null if there are none
+    private final EnumCloneType m_weakestType;
+
+    /**
+     * Constructor.
+     *
+     * @param matches An array, each element of which corresponds to a comparison unit of the method, that indicates how the comparison unit was classified as.
+     */
+    SegmentCounters(EnumCloneType[] matches)
+    {
+        int segment_size = 0;
+        int type12_count = 0;
+        EnumCloneType weakest_type = null;
+
+        for (EnumCloneType match : matches) {
+            // the non-matched prefix and suffix are not part of the segment
+            if(match == null) {
+                continue;
+            }
+
+            segment_size++;
+
+            if(match == EnumCloneType.TYPE_1 || match == EnumCloneType.TYPE_2) {
+                type12_count++;
+            }
+
+            weakest_type = weakest_type == null ? match : EnumCloneType.min(weakest_type, match);
+        }
+
+        m_segmentSize = segment_size;
+        m_type12Count = type12_count;
+        m_weakestType = weakest_type;
+    }
+
+    /**
+     * Classify the method, see {@link IMethodMatching#classifyMethod(EnumCloneType[], int, float)}.
+     *
+     * @param min_size The minimum size of the clone segment.
+     * @param min_density The minimum density of the clone segment.
+     */
+    EnumCloneType classify(int min_size, float min_density)
+    {
+        // if no matches were detected => false positive
+        if(m_weakestType == null) {
+            return EnumCloneType.FP;
+        }
+
+        // if the minimum size has been specified, and the size is lower that the minimum size => FP
+        if(m_segmentSize < min_size) {
+            return EnumCloneType.FP;
+        }
+
+        // if the minimum density has been specified, and the density is lower than the minimum density => FP
+        if((m_type12Count / (float) m_segmentSize) < min_density) {
+            return EnumCloneType.FP;
+        }
+
+        return m_weakestType;
+    }
+}
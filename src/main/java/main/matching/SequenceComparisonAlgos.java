@@ -17,8 +17,15 @@
 
 package main.matching;
 
+import main.clone.EnumCloneType;
+import main.method.Line;
+import main.method.Token;
+import main.method.TokenStream;
+
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Algorithms that compare two sequences.
@@ -33,6 +40,23 @@ public class SequenceComparisonAlgos
         List<SequenceElementMatch<EqType>> compute(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate);
     }
 
+    /**
+     * Interface for implementations of sequence comparison algorithms that operate directly on {@link TokenStream} objects.
+     * Tokens are compared using {@link Token#compareSymbols(int, int)}.
+     */
+    @FunctionalInterface
+    public interface ITokenStreamMatchingAlgo {
+        List<SequenceElementMatch<EnumCloneType>> compute(TokenStream seq1, TokenStream seq2);
+    }
+
+    /**
+     * Compares the elements at the specified indices of two sequences.
+     */
+    @FunctionalInterface
+    interface IIndexPredicate<EqType> {
+        EqType apply(int idx_1, int idx_2);
+    }
+
     /**
      * Represents a match between two sequences.
      * @param <EqType> The type that contains information about the match between the elements.
@@ -69,14 +93,100 @@ public class SequenceComparisonAlgos
      * @return A list of objects, each of which describe a match between two elements. Note that these matches may form a many-to-many mapping.
      */
     public static <ElemType, EqType> List<SequenceElementMatch<EqType>> computeNaiveMatch(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate)
+    {
+        return M_computeNaiveMatch(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)));
+    }
+
+    /**
+     * Variant of {@link SequenceComparisonAlgos#computeNaiveMatch} that compares the symbols of two token streams, without creating {@link Token} objects.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeTokenStreamNaiveMatch(TokenStream seq1, TokenStream seq2)
+    {
+        return M_computeNaiveMatch(seq1.size(), seq2.size(), (i, j) -> Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j)));
+    }
+
+    /**
+     * Create a variant of {@link SequenceComparisonAlgos#computeNaiveMatch} that uses an inverted index, see {@link IndexedNaiveMatch}.
+     * Only elements that share a key are compared. Type-2 matches are left out for pairs of elements that both have a Type-1 match,
+     * since the matchers only use the strictest match of each element. The strictest match of each element is therefore the
+     * same as with {@link SequenceComparisonAlgos#computeNaiveMatch}, unless the number of matches per element is limited.
+     *
+     * @param type_1_key Determines the Type-1 key of an element. Elements that form a Type-1 match must have equal Type-1 keys.
+     * @param type_2_key Determines the Type-2 key of an element, or null if the element cannot form a Type-2 match. Elements that form a
+     *                   Type-2 match must have equal Type-1 keys or equal Type-2 keys.
+     * @param max_matches_per_element The maximum number of matches of a single element in either sequence. This bounds the number of
+     *                                matches for repetitive elements, such as closing braces. Set to 0 to ignore.
+     * @param <ElemType> The type of the elements of the sequence.
+     */
+    public static <ElemType> IMatchingAlgo<ElemType, EnumCloneType> indexedNaiveMatch(Function<ElemType, ?> type_1_key, Function<ElemType, ?> type_2_key, int max_matches_per_element)
+    {
+        return (seq1, seq2, eq_predicate) -> IndexedNaiveMatch.compute(
+                seq1.stream().map(type_1_key).collect(Collectors.toList()),
+                seq2.stream().map(type_1_key).collect(Collectors.toList()),
+                seq1.stream().map(type_2_key).collect(Collectors.toList()),
+                seq2.stream().map(type_2_key).collect(Collectors.toList()),
+                (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)),
+                max_matches_per_element
+        );
+    }
+
+    /**
+     * Variant of {@link SequenceComparisonAlgos#indexedNaiveMatch} for token streams. Tokens are grouped by their contents, and
+     * identifiers and literals also by their category.
+     *
+     * @param max_matches_per_element The maximum number of matches of a single token in either sequence. Set to 0 to ignore.
+     */
+    public static ITokenStreamMatchingAlgo tokenStreamIndexedNaiveMatch(int max_matches_per_element)
+    {
+        return (seq1, seq2) -> IndexedNaiveMatch.compute(
+                M_getContentKeys(seq1),
+                M_getContentKeys(seq2),
+                M_getCategoryKeys(seq1),
+                M_getCategoryKeys(seq2),
+                (i, j) -> Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j)),
+                max_matches_per_element
+        );
+    }
+
+    /**
+     * The content IDs of the tokens of the specified stream.
+     */
+    private static List<Integer> M_getContentKeys(TokenStream stream)
+    {
+        List<Integer> retval = new ArrayList<>(stream.size());
+        for (int i = 0; i < stream.size(); i++) {
+            retval.add(stream.getSymbol(i) >>> Token.CATEGORY_BITS);
+        }
+
+        return retval;
+    }
+
+    /**
+     * The categories of the tokens of the specified stream, null for tokens that cannot form a Type-2 match.
+     */
+    private static List<Integer> M_getCategoryKeys(TokenStream stream)
+    {
+        List<Integer> retval = new ArrayList<>(stream.size());
+        for (int i = 0; i < stream.size(); i++) {
+            int symbol = stream.getSymbol(i);
+            retval.add(Token.getCategory(symbol) == Token.EnumTokenCategory.OTHER ? null : symbol & Token.CATEGORY_MASK);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Implementation of {@link SequenceComparisonAlgos#computeNaiveMatch}, where elements are identified by their index.
+     */
+    private static <EqType> List<SequenceElementMatch<EqType>> M_computeNaiveMatch(int size_1, int size_2, IIndexPredicate<EqType> eq_predicate)
     {
         List<SequenceElementMatch<EqType>> retval = new ArrayList<>();
 
         // iterate over all pairs of elements (i,j)
-        for (int i = 0; i < seq1.size(); i++) {
-            for (int j = 0; j < seq2.size(); j++) {
+        for (int i = 0; i < size_1; i++) {
+            for (int j = 0; j < size_2; j++) {
                 // check if elements are matched, produce information about the match
-                EqType eq = eq_predicate.apply(seq1.get(i), seq2.get(j));
+                EqType eq = eq_predicate.apply(i, j);
 
                 // there was a match
                 if(eq != null) {
@@ -89,77 +199,99 @@ public class SequenceComparisonAlgos
     }
 
     /**
-     * Represents a cell in the LCS matrix.
+     * Compute the LCS of the two sequences. The return type is a list of matches between the two sequences.
+     *
+     * @param seq1 The first sequence.
+     * @param seq2 The second sequence.
+     * @param eq_predicate A function that takes one element of each sequence and returns null if there is no match, or returns an object if there is a match. The returned object must contain extra information about the match.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     *
+     * @return A list of objects, each of which describe a match between two elements. The matches form a solution to the LCS problem.
      */
-    private static class LCSCell<T> {
-        private final LCSCell<T> m_prev;
-        private final SequenceElementMatch<T> m_elem;
-        private final int m_length;
+    public static <ElemType, EqType> List<SequenceElementMatch<EqType>> computeLCS(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate) {
+        return M_computeLCS(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)));
+    }
 
-        /**
-         * Constructor.
-         *
-         * @param new_match Information about the match.
-         * @param prev Link to the previous cell.
-         */
-        public LCSCell(SequenceElementMatch<T> new_match, LCSCell<T> prev) {
-            m_prev = prev;
-            m_elem = new_match;
-
-            // increment length of the matched subsequence by one
-            if(m_prev != null) {
-                m_length = m_prev.m_length + 1;
-            } else {
-                m_length = 1;
-            }
-        }
+    /**
+     * Variant of {@link SequenceComparisonAlgos#computeLCS} that compares the symbols of two token streams, without creating {@link Token} objects.
+     * The result is identical to that of {@link SequenceComparisonAlgos#computeLCS} on the corresponding lists of tokens.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeTokenStreamLCS(TokenStream seq1, TokenStream seq2) {
+        return computeLCS(seq1.size(), seq2.size(), IElementComparator.forTokenStreams(seq1, seq2));
+    }
 
-        /**
-         * Take the maximal match of two matches. The cell with the longest match will be returned.
-         */
-        public static <X> LCSCell<X> max(LCSCell<X> a, LCSCell<X> b) {
-            if(a == null) {
-                return b;
-            }
+    /**
+     * Variant of {@link SequenceComparisonAlgos#computeLCS} where the elements are identified by their index, and compared by the
+     * specified comparator. No objects are created while the LCS matrix is filled.
+     *
+     * @param size_1 The length of the first sequence.
+     * @param size_2 The length of the second sequence.
+     * @param comparator Compares an element of the first sequence with an element of the second sequence.
+     *
+     * @return A list of objects, each of which describe a match between two elements. The matches form a solution to the LCS problem.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeLCS(int size_1, int size_2, IElementComparator comparator) {
+        return RollingRowLCS.computeWithComparator(size_1, size_2, comparator, 0);
+    }
 
-            if(b == null) {
-                return a;
-            }
+    /**
+     * {@link SequenceComparisonAlgos#computeLCS} for lines. When this instance is passed to {@link LineMatching}, the lines are compared using
+     * {@link IElementComparator#forLines(List, List)} and {@link SequenceComparisonAlgos#computeLCS(int, int, IElementComparator)}, instead of
+     * calling the predicate of the matching for each cell of the LCS matrix. The result is identical.
+     */
+    public static final IMatchingAlgo<Line, EnumCloneType> LINE_LCS = SequenceComparisonAlgos::computeLCS;
 
-            if(a.m_length >= b.m_length) {
-                return a;
-            } else {
-                return b;
-            }
-        }
+    /**
+     * Implementation of {@link SequenceComparisonAlgos#computeLCS}, where elements are identified by their index. See {@link RollingRowLCS}.
+     */
+    private static <EqType> List<SequenceElementMatch<EqType>> M_computeLCS(int size_1, int size_2, IIndexPredicate<EqType> eq_predicate) {
+        return RollingRowLCS.compute(size_1, size_2, eq_predicate);
+    }
 
-        /**
-         * Retrieve the longest common subsequence. The sequence that has been matched up until this cell will be returned.
-         */
-        public List<SequenceElementMatch<T>> getLCS() {
-            // prepare return value, which is a sequence of cells
-            SequenceElementMatch<T>[] retval = new SequenceElementMatch[m_length];
-
-            // start at the last element
-            int i = m_length - 1;
-            LCSCell<T> cur = this;
-
-            // travel from current to the beginning
-            while(cur != null) {
-                // add visited element
-                retval[i] = cur.m_elem;
-
-                // go to previous element
-                cur = cur.m_prev;
-                i--;
-            }
+    /**
+     * Compute the LCS of the two sequences using Hirschberg's algorithm, see {@link HirschbergLCS}. This requires memory that is linear
+     * in the length of the sequences, instead of the quadratic matrix of {@link SequenceComparisonAlgos#computeLCS}.
+     * The LCS has the same length as the one computed by {@link SequenceComparisonAlgos#computeLCS}, but if there are multiple
+     * solutions, a different one may be selected.
+     *
+     * @param seq1 The first sequence.
+     * @param seq2 The second sequence.
+     * @param eq_predicate A function that takes one element of each sequence and returns null if there is no match, or returns an object if there is a match. The returned object must contain extra information about the match.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     *
+     * @return A list of objects, each of which describe a match between two elements. The matches form a solution to the LCS problem.
+     */
+    public static <ElemType, EqType> List<SequenceElementMatch<EqType>> computeHirschbergLCS(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate) {
+        return HirschbergLCS.compute(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)));
+    }
 
-            return Arrays.asList(retval);
-        }
+    /**
+     * Variant of {@link SequenceComparisonAlgos#computeHirschbergLCS} that compares the symbols of two token streams, without creating {@link Token} objects.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeTokenStreamHirschbergLCS(TokenStream seq1, TokenStream seq2) {
+        return HirschbergLCS.compute(seq1.size(), seq2.size(), (i, j) -> Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j)));
     }
 
     /**
-     * Compute the LCS of the two sequences. The return type is a list of matches between the two sequences.
+     * Compute the LCS of two token streams using a bit-parallel algorithm, see {@link BitParallelLCS}. The LCS matrix is computed
+     * 64 cells at a time, and requires one bit per cell. The result is identical to that of {@link SequenceComparisonAlgos#computeTokenStreamLCS}.
+     *
+     * @param seq1 The first sequence.
+     * @param seq2 The second sequence.
+     *
+     * @return A list of objects, each of which describe a match between two tokens. The matches form a solution to the LCS problem.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeTokenStreamBitParallelLCS(TokenStream seq1, TokenStream seq2) {
+        return BitParallelLCS.compute(seq1, seq2);
+    }
+
+    /**
+     * Compute the LCS of the two sequences using Myers' difference algorithm, see {@link MyersLCS}. The running time is proportional to
+     * the length of the sequences times the number of elements that are not part of the LCS, so nearly identical sequences are aligned in
+     * nearly linear time. The LCS has the same length as the one computed by {@link SequenceComparisonAlgos#computeLCS}, but if there are
+     * multiple solutions, a different one may be selected.
      *
      * @param seq1 The first sequence.
      * @param seq2 The second sequence.
@@ -169,47 +301,181 @@ public class SequenceComparisonAlgos
      *
      * @return A list of objects, each of which describe a match between two elements. The matches form a solution to the LCS problem.
      */
-    public static <ElemType, EqType> List<SequenceElementMatch<EqType>> computeLCS(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate) {
-        LCSCell<EqType>[][] matrix = new LCSCell[seq1.size()][seq2.size()];
+    public static <ElemType, EqType> List<SequenceElementMatch<EqType>> computeMyersLCS(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate) {
+        return MyersLCS.compute(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)));
+    }
 
-        if(seq1.size() == 0 || seq2.size() == 0) {
-            return List.of();
-        }
+    /**
+     * Variant of {@link SequenceComparisonAlgos#computeMyersLCS} that compares the symbols of two token streams, without creating {@link Token} objects.
+     */
+    public static List<SequenceElementMatch<EnumCloneType>> computeTokenStreamMyersLCS(TokenStream seq1, TokenStream seq2) {
+        return MyersLCS.compute(seq1.size(), seq2.size(), (i, j) -> Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j)));
+    }
 
-        // fill the LCS matrix
-        for(int i = 0; i < seq1.size(); i++) {
-            for (int j = 0; j < seq2.size(); j++) {
-                // compare elements
-                EqType eq = eq_predicate.apply(seq1.get(i), seq2.get(j));
+    /**
+     * Create an LCS algorithm that uses the Hunt-Szymanski algorithm, see {@link HuntSzymanskiLCS}. Only pairs of elements with equal keys
+     * are compared, so the running time depends on the number of such pairs instead of the product of the lengths of the sequences.
+     * This is suited for sequences in which most elements do not match, such as lines. The LCS has the same length as the one computed
+     * by {@link SequenceComparisonAlgos#computeLCS}, but if there are multiple solutions, a different one may be selected.
+     *
+     * @param key_function Determines the key of an element. Two elements whose keys are not equal must never match according to the
+     *                     predicate. The keys must implement {@link Object#hashCode()} and {@link Object#equals(Object)}.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     */
+    public static <ElemType, EqType> IMatchingAlgo<ElemType, EqType> huntSzymanskiLCS(Function<ElemType, ?> key_function) {
+        return (seq1, seq2, eq_predicate) -> HuntSzymanskiLCS.compute(
+                seq1.stream().map(key_function).collect(Collectors.toList()),
+                seq2.stream().map(key_function).collect(Collectors.toList()),
+                (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j))
+        );
+    }
 
-                if(eq != null) {
-                    // there was a match and we add it to the matrix
+    /**
+     * Create an algorithm that aligns two sequences using patience diff, see {@link PatienceDiff}. Elements that are unique in both
+     * sequences are matched first, and the ranges in between are aligned recursively. The result is a common subsequence that follows
+     * the distinctive elements, but it may be shorter than the LCS.
+     *
+     * @param key_function Determines the key of an element. Elements are unique if no other element of the same sequence has an equal key.
+     *                     Two elements whose keys are not equal must never match according to the predicate.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     */
+    public static <ElemType, EqType> IMatchingAlgo<ElemType, EqType> patienceDiff(Function<ElemType, ?> key_function) {
+        return (seq1, seq2, eq_predicate) -> PatienceDiff.compute(
+                seq1.stream().map(key_function).collect(Collectors.toList()),
+                seq2.stream().map(key_function).collect(Collectors.toList()),
+                (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j))
+        );
+    }
 
-                    SequenceElementMatch<EqType> match = new SequenceElementMatch<>(i, j, eq);
+    /**
+     * Create an LCS algorithm that is bounded by the specified thresholds, see {@link IMethodMatching#classifyMethod(EnumCloneType[], int, float)}.
+     * If the LCS is too short to satisfy the thresholds, the computation is abandoned and no matches are returned, so that the method
+     * is classified as False Positive. Otherwise, the result is identical to that of {@link SequenceComparisonAlgos#computeLCS}.
+     *
+     * The algorithm is passed to a matching together with the same thresholds, for example:
+     *
+     *     new LineMatching(method_1, method_2, SequenceComparisonAlgos.boundedLCS(min_size, min_density), min_size, min_density, false, true, true)
+     *
+     * The classification is then identical to that of {@link SequenceComparisonAlgos#computeLCS}. An abandoned pair is displayed without
+     * matches, so the algorithm is meant for matchings that are only classified, such as those of {@link main.evaluation.Eval}.
+     *
+     * @param min_size The minimum size of the clone segment.
+     * @param min_density The minimum density of the clone segment.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     */
+    public static <ElemType, EqType> IMatchingAlgo<ElemType, EqType> boundedLCS(int min_size, float min_density) {
+        int min_matches = IMethodMatching.getMinimumMatchCount(min_size, min_density);
+
+        return (seq1, seq2, eq_predicate) -> {
+            // the clone segment cannot be larger than the method
+            if(seq1.size() < min_size || seq2.size() < min_size) {
+                return List.of();
+            }
+
+            List<SequenceElementMatch<EqType>> retval = RollingRowLCS.compute(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)), min_matches);
+            return retval == null ? List.of() : retval;
+        };
+    }
 
-                    // if we are at the edge of the matrix, there is no "previous"
-                    LCSCell<EqType> prev = (i == 0 || j == 0) ? null : matrix[i-1][j-1];
+    /**
+     * Variant of {@link SequenceComparisonAlgos#boundedLCS} for token streams, which is passed to {@link TokenMatching} or {@link TraversalTreeMatching}
+     * in the same way. This uses the bit-parallel algorithm, see {@link BitParallelLCS}.
+     *
+     * @param min_size The minimum size of the clone segment.
+     * @param min_density The minimum density of the clone segment.
+     */
+    public static ITokenStreamMatchingAlgo boundedTokenStreamLCS(int min_size, float min_density) {
+        int min_matches = IMethodMatching.getMinimumMatchCount(min_size, min_density);
 
-                    // set matrix cell
-                    matrix[i][j] = new LCSCell<>(match, prev);
-                } else {
-                    // there was no match, so we just make a link to the previous cell
+        return (seq1, seq2) -> {
+            // the clone segment cannot be larger than the method
+            if(seq1.size() < min_size || seq2.size() < min_size) {
+                return List.of();
+            }
 
-                    // if we are at the edge of the matrix, there is no "previous"
-                    LCSCell<EqType> top  = (i == 0) ? null : matrix[i - 1][j];
-                    LCSCell<EqType> left = (j == 0) ? null : matrix[i][j - 1];
+            List<SequenceElementMatch<EnumCloneType>> retval = BitParallelLCS.compute(seq1, seq2, min_matches);
+            return retval == null ? List.of() : retval;
+        };
+    }
 
-                    // set matrix cell
-                    matrix[i][j] = LCSCell.max(top, left);
-                }
+    /**
+     * Wrap the specified algorithm, so that the longest common prefix and suffix of both sequences are matched in linear time before the
+     * algorithm is applied. The algorithm is then only applied to the remaining elements in the middle, and its matches are combined with
+     * the matches of the prefix and suffix. This is useful for Type-1 and Type-2 clones, which usually share long identical heads and tails.
+     *
+     * Matching equal elements at the start or the end of both sequences never decreases the LCS, so the LCS has the same length.
+     * If there are multiple solutions, a different one may be selected. This only holds for algorithms that compute an LCS: the naive
+     * matching would lose the matches between the prefix or suffix and the other elements.
+     *
+     * @param matching_algo The algorithm that will be applied to the middle of the sequences.
+     * @param <ElemType> The type of the elements of the sequence.
+     * @param <EqType> The type of the object that contains information about a match between two elements.
+     */
+    public static <ElemType, EqType> IMatchingAlgo<ElemType, EqType> stripAffixes(IMatchingAlgo<ElemType, EqType> matching_algo) {
+        return (seq1, seq2, eq_predicate) -> M_stripAffixes(seq1.size(), seq2.size(), (i, j) -> eq_predicate.apply(seq1.get(i), seq2.get(j)),
+                (prefix, suffix) -> matching_algo.compute(seq1.subList(prefix, seq1.size() - suffix), seq2.subList(prefix, seq2.size() - suffix), eq_predicate));
+    }
+
+    /**
+     * Variant of {@link SequenceComparisonAlgos#stripAffixes(IMatchingAlgo)} for algorithms that operate on token streams.
+     *
+     * @param matching_algo The algorithm that will be applied to the middle of the token streams.
+     */
+    public static ITokenStreamMatchingAlgo stripAffixes(ITokenStreamMatchingAlgo matching_algo) {
+        return (seq1, seq2) -> M_stripAffixes(seq1.size(), seq2.size(), (i, j) -> Token.compareSymbols(seq1.getSymbol(i), seq2.getSymbol(j)),
+                (prefix, suffix) -> matching_algo.compute(seq1.subStream(prefix, seq1.size() - suffix), seq2.subStream(prefix, seq2.size() - suffix)));
+    }
+
+    /**
+     * Implementation of {@link SequenceComparisonAlgos#stripAffixes(IMatchingAlgo)}, where elements are identified by their index.
+     *
+     * @param middle_algo Receives the lengths of the common prefix and suffix, and applies the algorithm to the elements in between. The
+     *                    indices of the returned matches are relative to the start of the middle.
+     */
+    private static <EqType> List<SequenceElementMatch<EqType>> M_stripAffixes(int size_1, int size_2, IIndexPredicate<EqType> eq_predicate, BiFunction<Integer, Integer, List<SequenceElementMatch<EqType>>> middle_algo) {
+        List<SequenceElementMatch<EqType>> retval = new ArrayList<>();
+        int max_affix = Math.min(size_1, size_2);
+
+        // common prefix
+        int prefix = 0;
+        while(prefix < max_affix) {
+            EqType eq = eq_predicate.apply(prefix, prefix);
+            if(eq == null) {
+                break;
             }
+
+            retval.add(new SequenceElementMatch<>(prefix, prefix, eq));
+            prefix++;
         }
 
-        // if there were not matches, the result is "null"
-        if(matrix[seq1.size()-1][seq2.size()-1] == null) {
-            return List.of();
-        } else {
-            return matrix[seq1.size() - 1][seq2.size() - 1].getLCS();
+        // common suffix, which must not overlap with the prefix
+        List<SequenceElementMatch<EqType>> suffix_matches = new ArrayList<>();
+        int suffix = 0;
+        while(prefix + suffix < max_affix) {
+            int idx_1 = size_1 - 1 - suffix;
+            int idx_2 = size_2 - 1 - suffix;
+
+            EqType eq = eq_predicate.apply(idx_1, idx_2);
+            if(eq == null) {
+                break;
+            }
+
+            suffix_matches.add(new SequenceElementMatch<>(idx_1, idx_2, eq));
+            suffix++;
         }
+
+        // apply the algorithm to the middle, and shift the indices of its matches
+        for (SequenceElementMatch<EqType> match : middle_algo.apply(prefix, suffix)) {
+            retval.add(new SequenceElementMatch<>(match.idx_1 + prefix, match.idx_2 + prefix, match.eq_type));
+        }
+
+        // the suffix was matched from back to front
+        Collections.reverse(suffix_matches);
+        retval.addAll(suffix_matches);
+
+        return retval;
     }
 }
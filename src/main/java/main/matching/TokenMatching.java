@@ -21,26 +21,33 @@ import com.github.javaparser.ParseProblemException;
 import main.clone.EnumCloneType;
 import main.method.Method;
 import main.method.Token;
+import main.method.TokenStream;
 
 import java.awt.*;
 import java.io.IOException;
 import java.util.List;
 import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
 
 /**
  * Matching between two methods based on the tokens of the methods. Here, the comparison units are single tokens.
  */
 public class TokenMatching implements IMethodMatching
 {
-    // tokens per method
-    private final List<Token> m_method1Tokens;
-    private final List<Token> m_method2Tokens;
+    // tokens per method, null in classification-only mode
+    private final TokenStream m_method1Tokens;
+    private final TokenStream m_method2Tokens;
 
-    // the matches for each token
+    // the matches for each token, null in classification-only mode
     private final EnumCloneType[] m_method1Matched;
     private final EnumCloneType[] m_method2Matched;
 
+    // the numbers needed for the classification of each method
+    private final SegmentCounters m_method1Counters;
+    private final SegmentCounters m_method2Counters;
+
+    // rebuilds the full matching when the methods are displayed in classification-only mode, null otherwise
+    private final IMethodMatching m_deferredMatching;
+
     private final int m_minSize;
     private final float m_minDensity;
 
@@ -56,33 +63,104 @@ public class TokenMatching implements IMethodMatching
      * @throws MatchingException In case there is an IO error, or a parsing error.
      */
     public TokenMatching(Method method_1, Method method_2, SequenceComparisonAlgos.IMatchingAlgo<Token, EnumCloneType> matching_algo, int min_size, float min_density) throws MatchingException
+    {
+        this(method_1, method_2, matching_algo, min_size, min_density, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param method_1 The first method.
+     * @param method_2 The second method.
+     * @param matching_algo The algorithm that will be used to match the tokens of the first method with lines of the second method.
+     * @param min_size The minimum size of the clone segment. The size of such a segment is the amount of lines between the first and last line of the segment. Set to 0 to ignore.
+     * @param min_density The minimum density of the clone segment. This is the number of Type-1 or Type-2 matched lines divided by the segment size. Set to 0.0 to ignore.
+     * @param classification_only Only keep the numbers that are needed for the classification. The tokens and their matches are released
+     *                            after the constructor, and the matching is computed again when the methods are displayed.
+     *
+     * @throws MatchingException In case there is an IO error, or a parsing error.
+     */
+    public TokenMatching(Method method_1, Method method_2, SequenceComparisonAlgos.IMatchingAlgo<Token, EnumCloneType> matching_algo, int min_size, float min_density, boolean classification_only) throws MatchingException
+    {
+        // compare the tokens as lists of Token objects
+        this(method_1, method_2, (seq1, seq2) -> matching_algo.compute(seq1.toTokenList(), seq2.toTokenList(),
+                (token1, token2) -> Token.compareSymbols(token1.getSymbol(), token2.getSymbol())), min_size, min_density, classification_only);
+    }
+
+    /**
+     * Constructor. The tokens are compared directly on their symbols, see {@link TokenStream}.
+     *
+     * @param method_1 The first method.
+     * @param method_2 The second method.
+     * @param matching_algo The algorithm that will be used to match the tokens of the first method with lines of the second method.
+     * @param min_size The minimum size of the clone segment. The size of such a segment is the amount of lines between the first and last line of the segment. Set to 0 to ignore.
+     * @param min_density The minimum density of the clone segment. This is the number of Type-1 or Type-2 matched lines divided by the segment size. Set to 0.0 to ignore.
+     *
+     * @throws MatchingException In case there is an IO error, or a parsing error.
+     */
+    public TokenMatching(Method method_1, Method method_2, SequenceComparisonAlgos.ITokenStreamMatchingAlgo matching_algo, int min_size, float min_density) throws MatchingException
+    {
+        this(method_1, method_2, matching_algo, min_size, min_density, false);
+    }
+
+    /**
+     * Constructor. The tokens are compared directly on their symbols, see {@link TokenStream}.
+     *
+     * @param method_1 The first method.
+     * @param method_2 The second method.
+     * @param matching_algo The algorithm that will be used to match the tokens of the first method with lines of the second method.
+     * @param min_size The minimum size of the clone segment. The size of such a segment is the amount of lines between the first and last line of the segment. Set to 0 to ignore.
+     * @param min_density The minimum density of the clone segment. This is the number of Type-1 or Type-2 matched lines divided by the segment size. Set to 0.0 to ignore.
+     * @param classification_only Only keep the numbers that are needed for the classification. The tokens and their matches are released
+     *                            after the constructor, and the matching is computed again when the methods are displayed.
+     *
+     * @throws MatchingException In case there is an IO error, or a parsing error.
+     */
+    public TokenMatching(Method method_1, Method method_2, SequenceComparisonAlgos.ITokenStreamMatchingAlgo matching_algo, int min_size, float min_density, boolean classification_only) throws MatchingException
     {
         try {
             m_minSize = min_size;
             m_minDensity = min_density;
 
             // get tokens
-            m_method1Tokens = method_1.getTokens();
-            m_method2Tokens = method_2.getTokens();
+            TokenStream method1_tokens = method_1.getTokenStream();
+            TokenStream method2_tokens = method_2.getTokenStream();
 
             // initialise arrays of matches, all initially set to null
-            m_method1Matched = new EnumCloneType[m_method1Tokens.size()];
-            m_method2Matched = new EnumCloneType[m_method2Tokens.size()];
+            EnumCloneType[] method1_matched = new EnumCloneType[method1_tokens.size()];
+            EnumCloneType[] method2_matched = new EnumCloneType[method2_tokens.size()];
 
             // apply comparison algorithm
-            BiFunction<Token, Token, EnumCloneType> eq_predicate = (token1, token2) -> Token.compareTokens(token1, token2, false);
-            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches = matching_algo.compute(m_method1Tokens, m_method2Tokens, eq_predicate);
+            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches = matching_algo.compute(method1_tokens, method2_tokens);
 
             // for each possible match that was found by the algorithm, try to update the match arrays
             for (SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType> match : matches) {
                 // we take "match" here, since the algo may both give a single element a Type-1 or Type-2 match. We will select the Type-1 match in such a case.
-                m_method1Matched[match.idx_1] = EnumCloneType.max(m_method1Matched[match.idx_1], match.eq_type);
-                m_method2Matched[match.idx_2] = EnumCloneType.max(m_method2Matched[match.idx_2], match.eq_type);
+                method1_matched[match.idx_1] = EnumCloneType.max(method1_matched[match.idx_1], match.eq_type);
+                method2_matched[match.idx_2] = EnumCloneType.max(method2_matched[match.idx_2], match.eq_type);
             }
 
             // fill in any gaps with Type-3
-            IMethodMatching.fillInType3Matches(m_method1Matched);
-            IMethodMatching.fillInType3Matches(m_method2Matched);
+            IMethodMatching.fillInType3Matches(method1_matched);
+            IMethodMatching.fillInType3Matches(method2_matched);
+
+            m_method1Counters = new SegmentCounters(method1_matched);
+            m_method2Counters = new SegmentCounters(method2_matched);
+
+            if(classification_only) {
+                m_method1Tokens = null;
+                m_method2Tokens = null;
+                m_method1Matched = null;
+                m_method2Matched = null;
+                m_deferredMatching = new DeferredMethodMatching((method1, method2) -> new TokenMatching(method1, method2, matching_algo, min_size, min_density),
+                        method_1, method_2, classify());
+            } else {
+                m_method1Tokens = method1_tokens;
+                m_method2Tokens = method2_tokens;
+                m_method1Matched = method1_matched;
+                m_method2Matched = method2_matched;
+                m_deferredMatching = null;
+            }
 
         } catch(IOException | ParseProblemException e) {
             throw new MatchingException(e);
@@ -93,8 +171,8 @@ public class TokenMatching implements IMethodMatching
     public EnumCloneType classify()
     {
         // classify each method separately
-        EnumCloneType method1_type = IMethodMatching.classifyMethod(m_method1Matched, m_minSize, m_minDensity);
-        EnumCloneType method2_type = IMethodMatching.classifyMethod(m_method2Matched, m_minSize, m_minDensity);
+        EnumCloneType method1_type = m_method1Counters.classify(m_minSize, m_minDensity);
+        EnumCloneType method2_type = m_method2Counters.classify(m_minSize, m_minDensity);
 
         // take minimum
         return EnumCloneType.min(method1_type, method2_type);
@@ -103,13 +181,21 @@ public class TokenMatching implements IMethodMatching
     @Override
     public void writeMatchedMethod1(BiConsumer<String, Color> writer)
     {
-        M_writeMethod(writer, m_method1Tokens, m_method1Matched);
+        if(m_deferredMatching != null) {
+            m_deferredMatching.writeMatchedMethod1(writer);
+        } else {
+            M_writeMethod(writer, m_method1Tokens, m_method1Matched);
+        }
     }
 
     @Override
     public void writeMatchedMethod2(BiConsumer<String, Color> writer)
     {
-        M_writeMethod(writer, m_method2Tokens, m_method2Matched);
+        if(m_deferredMatching != null) {
+            m_deferredMatching.writeMatchedMethod2(writer);
+        } else {
+            M_writeMethod(writer, m_method2Tokens, m_method2Matched);
+        }
     }
 
     /**
@@ -119,7 +205,7 @@ public class TokenMatching implements IMethodMatching
      * @param tokens The tokens that will be displayed.
      * @param matches An array that contains an entry for each line, and determines how that line was matched.
      */
-    private static void M_writeMethod(BiConsumer<String, Color> writer, List<Token> tokens, EnumCloneType[] matches) {
+    private static void M_writeMethod(BiConsumer<String, Color> writer, TokenStream tokens, EnumCloneType[] matches) {
         // iterate over tokens
         for(int i = 0; i < tokens.size(); i++) {
             Color color = Color.WHITE;
@@ -134,7 +220,7 @@ public class TokenMatching implements IMethodMatching
             }
 
             // "Category::TokenContent"
-            writer.accept(tokens.get(i).getCategory().name() + "::" + tokens.get(i).getContents() + "\n", color);
+            writer.accept(tokens.getCategory(i).name() + "::" + tokens.getContents(i) + "\n", color);
         }
     }
 }
@@ -0,0 +1,266 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import com.github.javaparser.ParseProblemException;
+import main.clone.EnumCloneType;
+import main.method.Line;
+import main.method.Method;
+import main.method.Token;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Matcher that classifies pairs as False Positive without aligning them, if their LCS certainly cannot satisfy the thresholds of
+ * {@link IMethodMatching#classifyMethod}. Each unit of the LCS is matched in both methods, so the LCS must contain at least
+ * {@link IMethodMatching#getMinimumMatchCount} units. The following upper bounds of the LCS length are checked, in order of cost:
+ *
+ *  - The length of the shortest method.
+ *  - The intersection of the histograms of unit labels. Units that match always have the same label, so each label can contribute at most
+ *    the smaller of its two counts.
+ *  - The number of common q-grams of labels. A common subsequence of length L, where n + m - 2L units are not part of the subsequence,
+ *    leaves at least L - q + 1 - (q - 1)(n + m - 2L) of its q-grams intact in both methods.
+ *
+ * All bounds are admissible, so the classification is identical to that of the wrapped matcher, provided that it classifies the
+ * units of an LCS. This is not the case for the naive matching algorithm. All other pairs are matched by the wrapped matcher.
+ *
+ * @param <UnitType> The type of the comparison units.
+ */
+public class UpperBoundFilter<UnitType> implements IMatcher
+{
+    // the length of the q-grams
+    private static final int Q = 2;
+
+    /**
+     * Assigns labels to the units of two methods. Units that can match must have equal labels.
+     */
+    @FunctionalInterface
+    public interface IUnitLabeler<UnitType>
+    {
+        /**
+         * @return The labels of the units of the first method, and the labels of the units of the second method.
+         */
+        int[][] label(List<UnitType> units_1, List<UnitType> units_2);
+    }
+
+    private final IMatcher m_fullMatcher;
+    private final CascadeMatcher.IUnitExtractor<UnitType> m_unitExtractor;
+    private final IUnitLabeler<UnitType> m_unitLabeler;
+    private final int m_minMatches;
+
+    // the number of pairs rejected by each bound
+    private long m_lengthRejected = 0;
+    private long m_histogramRejected = 0;
+    private long m_qgramRejected = 0;
+    private long m_fullyMatched = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param full_matcher The matcher for pairs that are not rejected.
+     * @param unit_extractor Retrieves the comparison units that are used by the full matcher.
+     * @param unit_labeler Assigns labels to the units.
+     * @param min_size The minimum size of the clone segment, the same as that of the full matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the full matcher.
+     */
+    private UpperBoundFilter(IMatcher full_matcher, CascadeMatcher.IUnitExtractor<UnitType> unit_extractor, IUnitLabeler<UnitType> unit_labeler, int min_size, float min_density)
+    {
+        m_fullMatcher = full_matcher;
+        m_unitExtractor = unit_extractor;
+        m_unitLabeler = unit_labeler;
+        m_minMatches = IMethodMatching.getMinimumMatchCount(min_size, min_density);
+    }
+
+    /**
+     * Create a filter for a {@link LineMatching} matcher. Lines are labeled by their blinded fingerprint, see {@link Line#getBlindedFingerprint()}.
+     *
+     * @param full_matcher The line matcher.
+     * @param min_size The minimum size of the clone segment, the same as that of the line matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the line matcher.
+     */
+    public static UpperBoundFilter<Line> forLines(IMatcher full_matcher, int min_size, float min_density)
+    {
+        return new UpperBoundFilter<>(full_matcher, Method::getLines, (lines_1, lines_2) -> new int[][] {
+                lines_1.stream().mapToInt(Line::getBlindedFingerprint).toArray(),
+                lines_2.stream().mapToInt(Line::getBlindedFingerprint).toArray()
+        }, min_size, min_density);
+    }
+
+    /**
+     * Create a filter for a matcher whose comparison units are tokens, such as {@link TokenMatching} or {@link TraversalTreeMatching}.
+     * Tokens are labeled by their blinded key, see {@link Token#getBlindedKey()}.
+     *
+     * @param full_matcher The token matcher.
+     * @param unit_extractor Retrieves the tokens that are used by the token matcher.
+     * @param min_size The minimum size of the clone segment, the same as that of the token matcher.
+     * @param min_density The minimum density of the clone segment, the same as that of the token matcher.
+     */
+    public static UpperBoundFilter<Token> forTokens(IMatcher full_matcher, CascadeMatcher.IUnitExtractor<Token> unit_extractor, int min_size, float min_density)
+    {
+        return new UpperBoundFilter<>(full_matcher, unit_extractor, (tokens_1, tokens_2) -> new int[][] {
+                tokens_1.stream().mapToInt(Token::getBlindedKey).toArray(),
+                tokens_2.stream().mapToInt(Token::getBlindedKey).toArray()
+        }, min_size, min_density);
+    }
+
+    @Override
+    public IMethodMatching match(Method method1, Method method2) throws MatchingException
+    {
+        try {
+            List<UnitType> units_1 = m_unitExtractor.extract(method1);
+            List<UnitType> units_2 = m_unitExtractor.extract(method2);
+
+            if(Math.min(units_1.size(), units_2.size()) < m_minMatches) {
+                return M_reject(method1, method2, 0);
+            }
+
+            int[][] labels = m_unitLabeler.label(units_1, units_2);
+
+            if(M_histogramBound(labels[0], labels[1]) < m_minMatches) {
+                return M_reject(method1, method2, 1);
+            }
+
+            if(M_qgramBound(labels[0], labels[1]) < m_minMatches) {
+                return M_reject(method1, method2, 2);
+            }
+        } catch (IOException | ParseProblemException e) {
+            throw new MatchingException(e);
+        }
+
+        synchronized (this) {
+            m_fullyMatched++;
+        }
+
+        return m_fullMatcher.match(method1, method2);
+    }
+
+    /**
+     * The number of pairs that were rejected because one of the methods is too short.
+     */
+    public synchronized long getLengthRejectedCount()
+    {
+        return m_lengthRejected;
+    }
+
+    /**
+     * The number of pairs that were rejected because of the histogram intersection.
+     */
+    public synchronized long getHistogramRejectedCount()
+    {
+        return m_histogramRejected;
+    }
+
+    /**
+     * The number of pairs that were rejected because of the number of common q-grams.
+     */
+    public synchronized long getQgramRejectedCount()
+    {
+        return m_qgramRejected;
+    }
+
+    /**
+     * The number of pairs that were matched by the full matcher.
+     */
+    public synchronized long getFullyMatchedCount()
+    {
+        return m_fullyMatched;
+    }
+
+    /**
+     * Count the rejected pair, and classify it as False Positive.
+     *
+     * @param bound 0 for the length, 1 for the histogram, and 2 for the q-grams.
+     */
+    private IMethodMatching M_reject(Method method1, Method method2, int bound)
+    {
+        synchronized (this) {
+            if(bound == 0) {
+                m_lengthRejected++;
+            } else if(bound == 1) {
+                m_histogramRejected++;
+            } else {
+                m_qgramRejected++;
+            }
+        }
+
+        return new DeferredMethodMatching(m_fullMatcher, method1, method2, EnumCloneType.FP);
+    }
+
+    /**
+     * Upper bound of the LCS length: the intersection of the label histograms.
+     */
+    private static int M_histogramBound(int[] labels_1, int[] labels_2)
+    {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int label : labels_1) {
+            counts.merge(label, 1, Integer::sum);
+        }
+
+        int retval = 0;
+        for (int label : labels_2) {
+            Integer count = counts.get(label);
+
+            // each unit of the first method can only be used once
+            if(count != null && count > 0) {
+                counts.put(label, count - 1);
+                retval++;
+            }
+        }
+
+        return retval;
+    }
+
+    /**
+     * Upper bound of the LCS length, derived from the number of common q-grams. See the description of this class.
+     */
+    private static int M_qgramBound(int[] labels_1, int[] labels_2)
+    {
+        Map<List<Integer>, Integer> counts = new HashMap<>();
+        for (int i = 0; i + Q <= labels_1.length; i++) {
+            counts.merge(M_qgram(labels_1, i), 1, Integer::sum);
+        }
+
+        int common = 0;
+        for (int j = 0; j + Q <= labels_2.length; j++) {
+            List<Integer> qgram = M_qgram(labels_2, j);
+            Integer count = counts.get(qgram);
+
+            if(count != null && count > 0) {
+                counts.put(qgram, count - 1);
+                common++;
+            }
+        }
+
+        // L - q + 1 - (q - 1)(n + m - 2L) <= common
+        return (common + (Q - 1) * (labels_1.length + labels_2.length + 1)) / (2 * Q - 1);
+    }
+
+    /**
+     * The q-gram that starts at the specified position.
+     */
+    private static List<Integer> M_qgram(int[] labels, int begin)
+    {
+        List<Integer> retval = new ArrayList<>(Q);
+        for (int i = begin; i < begin + Q; i++) {
+            retval.add(labels[i]);
+        }
+
+        return retval;
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import com.github.javaparser.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizes the body of a method using only the lexer of Javaparser, without constructing an AST. The result is equal to the
+ * tokens of the body in the AST, see {@link Method#getTokens()}.
+ *
+ * Some tokens are interpreted differently by the parser, depending on their context. Snippets that contain such tokens, or that
+ * do not have the structure of a method declaration, are not tokenized. The caller must use the AST in that case.
+ *
+ * The lexer does not check the syntax of the body, so it also tokenizes bodies that the parser rejects. {@link Method#getTokenStream()}
+ * therefore only uses it if this has been enabled explicitly, see {@link Method#setLexerTokenization(boolean)}.
+ *
+ * The pretty-printed body of a method, from which the lines are derived, is produced from an AST and therefore always parses. It is
+ * tokenized by the lexer, so that computing the lines does not parse the method a second time, see {@link BodyLexer#tokenizeLines}.
+ */
+public class BodyLexer
+{
+    // restricted keywords, which the parser turns into identifiers depending on the context
+    private static final Set<String> CONTEXTUAL_KEYWORDS = new HashSet<>(Arrays.asList(
+            "open", "module", "requires", "transitive", "exports", "opens", "to", "uses", "provides", "with",
+            "yield", "record", "permits", "sealed", "non-sealed", "when"
+    ));
+
+    /**
+     * Determine whether the specified token is a restricted keyword. Depending on the context, the parser treats such a token as
+     * a keyword or as an identifier, so tokens with the same contents may have different categories.
+     */
+    public static boolean isContextualKeyword(String token_contents)
+    {
+        return CONTEXTUAL_KEYWORDS.contains(token_contents);
+    }
+
+    /**
+     * Tokenize the body of the specified method declaration. Whitespace and comments are skipped.
+     *
+     * @param method_text The source code of the method declaration, including the signature.
+     *
+     * @return The tokens of the body, starting with the opening brace and ending with the closing brace. Null if the
+     *         text cannot be tokenized without the parser.
+     */
+    public static TokenStream tokenizeBody(String method_text)
+    {
+        GeneratedJavaParserTokenManager token_manager = new GeneratedJavaParserTokenManager(new SimpleCharStream(new StringProvider(method_text)));
+
+        int[] symbols = new int[64];
+        int size = 0;
+
+        // the depth of parentheses and braces, the body starts at the first brace outside of any parentheses
+        int paren_depth = 0;
+        int brace_depth = 0;
+        boolean body_ended = false;
+
+        try {
+            while(true) {
+                com.github.javaparser.Token token = token_manager.getNextToken();
+
+                if(token.kind == GeneratedJavaParserConstants.EOF) {
+                    break;
+                }
+
+                // the parser may interpret these as identifiers
+                if(isContextualKeyword(token.image)) {
+                    return null;
+                }
+
+                // the body must be the last part of the declaration
+                if(body_ended) {
+                    return null;
+                }
+
+                if(brace_depth == 0) {
+                    // signature
+                    if(token.kind == GeneratedJavaParserConstants.LPAREN) {
+                        paren_depth++;
+                    } else if(token.kind == GeneratedJavaParserConstants.RPAREN) {
+                        paren_depth--;
+                    } else if(token.kind == GeneratedJavaParserConstants.LBRACE && paren_depth == 0) {
+                        brace_depth = 1;
+                    }
+
+                    // tokens of the signature are not included
+                    if(brace_depth == 0) {
+                        continue;
+                    }
+                } else if(token.kind == GeneratedJavaParserConstants.LBRACE) {
+                    brace_depth++;
+                } else if(token.kind == GeneratedJavaParserConstants.RBRACE) {
+                    brace_depth--;
+                    body_ended = brace_depth == 0;
+                }
+
+                JavaToken java_token = M_toJavaToken(token);
+                if(java_token.getCategory() == JavaToken.Category.WHITESPACE_NO_EOL
+                        || java_token.getCategory() == JavaToken.Category.COMMENT
+                        || java_token.getCategory() == JavaToken.Category.EOL)
+                {
+                    continue;
+                }
+
+                if(size == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, symbols.length * 2);
+                }
+                symbols[size++] = Token.toSymbol(java_token.getText(), Token.EnumTokenCategory.fromJavaToken(java_token));
+            }
+        } catch (TokenMgrException e) {
+            // lexical error, the parser will report it
+            return null;
+        }
+
+        // no body, or the body is not closed
+        if(!body_ended) {
+            return null;
+        }
+
+        return new TokenStream(Arrays.copyOf(symbols, size));
+    }
+
+    /**
+     * Tokenize the specified source code line by line. Whitespace and comments are skipped. Unlike {@link BodyLexer#tokenizeBody},
+     * the text is not required to be a method declaration.
+     *
+     * @param text Source code that is known to parse, such as the pretty-printed body of a method, see {@link Method#getLines()}.
+     *
+     * @return The tokens of each line of the text. Null if the text cannot be tokenized without the parser.
+     */
+    public static List<List<Token>> tokenizeLines(String text)
+    {
+        GeneratedJavaParserTokenManager token_manager = new GeneratedJavaParserTokenManager(new SimpleCharStream(new StringProvider(text)));
+
+        List<List<Token>> retval = new ArrayList<>();
+        retval.add(new ArrayList<>());
+
+        try {
+            while(true) {
+                com.github.javaparser.Token token = token_manager.getNextToken();
+
+                // whitespace and comments are not returned by the lexer, but attached to the next token
+                for (com.github.javaparser.Token special = token.specialToken; special != null; special = special.specialToken) {
+                    if(M_toJavaToken(special).getCategory() == JavaToken.Category.EOL) {
+                        retval.add(new ArrayList<>());
+                    }
+                }
+
+                if(token.kind == GeneratedJavaParserConstants.EOF) {
+                    break;
+                }
+
+                // the parser may interpret these as identifiers
+                if(isContextualKeyword(token.image)) {
+                    return null;
+                }
+
+                retval.get(retval.size() - 1).add(new Token(M_toJavaToken(token)));
+            }
+        } catch (TokenMgrException e) {
+            // lexical error, the parser will report it
+            return null;
+        }
+
+        return retval;
+    }
+
+    /**
+     * Convert a token of the lexer to the token that the parser would produce.
+     */
+    private static JavaToken M_toJavaToken(com.github.javaparser.Token token)
+    {
+        // the lexer produces ">" for each character of ">>" and ">>>", the parser combines them later
+        String image = token.kind == GeneratedJavaParserConstants.GT ? ">" : token.image;
+
+        return new JavaToken(token.kind, image);
+    }
+}
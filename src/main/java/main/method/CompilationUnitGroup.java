@@ -0,0 +1,169 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.Position;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A group of methods that are located in the same source file. Instead of parsing each method separately, the entire
+ * source file is parsed once, when the first method of the group is parsed. Each method of the group then receives the
+ * declaration whose line range corresponds with the line range of the method.
+ *
+ * Methods whose line range does not correspond with a declaration, or whose source file cannot be parsed, are parsed separately,
+ * as if they were not part of a group.
+ */
+public class CompilationUnitGroup
+{
+    private final File m_path;
+    private final List<Method> m_methods = new ArrayList<>();
+
+    private boolean m_parsed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param path The path of the source file.
+     */
+    private CompilationUnitGroup(File path)
+    {
+        m_path = path;
+    }
+
+    /**
+     * Divide the specified methods in groups, such that all methods of a group are located in the same source file.
+     *
+     * @return The number of groups.
+     */
+    public static int groupByFile(Collection<Method> methods) throws IOException
+    {
+        Map<String, CompilationUnitGroup> groups = new HashMap<>();
+
+        for (Method method : methods) {
+            // the canonical path is used so that different spellings of the same path are recognized
+            CompilationUnitGroup group = groups.computeIfAbsent(method.getPath().getCanonicalPath(), k -> new CompilationUnitGroup(method.getPath()));
+
+            group.m_methods.add(method);
+            method.setGroup(group);
+        }
+
+        return groups.size();
+    }
+
+    /**
+     * Parse the source file and provide each method of the group with its declaration. The source file is only parsed on the first call.
+     */
+    synchronized void parse() throws IOException
+    {
+        if(m_parsed) {
+            return;
+        }
+
+        m_parsed = true;
+
+        SourceFile source_file = SourceFileCache.getInstance().get(m_path);
+
+        CompilationUnit compilation_unit;
+        try {
+            compilation_unit = StaticJavaParser.parse(source_file.getContents());
+        } catch (ParseProblemException e) {
+            // all methods will be parsed separately
+            return;
+        }
+
+        // index the declarations by their line range
+        Map<Long, CallableDeclaration<?>> declarations = new HashMap<>();
+        for (CallableDeclaration<?> declaration : compilation_unit.findAll(CallableDeclaration.class)) {
+            if(!declaration.getBegin().isPresent() || !declaration.getEnd().isPresent()) {
+                continue;
+            }
+
+            Position begin = declaration.getBegin().get();
+            Position end = declaration.getEnd().get();
+
+            // the declaration must occupy its lines entirely, otherwise parsing the lines separately would give a different result
+            if(!M_isFirstOnLine(source_file, begin) || !M_isLastOnLine(source_file, end)) {
+                continue;
+            }
+
+            declarations.put(M_rangeKey(begin.line, end.line), declaration);
+
+            // the line range of a method may also include the comment of the method
+            Optional<Position> comment_begin = declaration.getComment().flatMap(Comment::getBegin);
+            if(comment_begin.isPresent() && M_isFirstOnLine(source_file, comment_begin.get())) {
+                declarations.put(M_rangeKey(comment_begin.get().line, end.line), declaration);
+            }
+        }
+
+        for (Method method : m_methods) {
+            CallableDeclaration<?> declaration = declarations.get(M_rangeKey(method.getBegin(), method.getEnd()));
+
+            if(declaration != null) {
+                method.setDeclaration(declaration);
+            }
+        }
+    }
+
+    /**
+     * Check whether only whitespace precedes the specified position on its line.
+     */
+    private static boolean M_isFirstOnLine(SourceFile source_file, Position position)
+    {
+        CharSequence line = source_file.getLines(position.line, position.line);
+
+        for (int i = 0; i < position.column - 1 && i < line.length(); i++) {
+            if(!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check whether only whitespace follows the specified position on its line.
+     */
+    private static boolean M_isLastOnLine(SourceFile source_file, Position position)
+    {
+        CharSequence line = source_file.getLines(position.line, position.line);
+
+        for (int i = position.column; i < line.length(); i++) {
+            if(!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Combine the specified line range in a single key.
+     */
+    private static long M_rangeKey(int begin_line, int end_line)
+    {
+        return ((long) begin_line << 32) | (end_line & 0xFFFFFFFFL);
+    }
+}
@@ -17,16 +17,30 @@
 
 package main.method;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Class that contains information about a single line of code. The line does not contain any whitespace, newlines, or comments.
+ *
+ * For fast comparison, each line also contains its symbols without "final" keywords, and two fingerprints of these symbols: an exact
+ * fingerprint, and a fingerprint in which identifiers and literals are blinded, i.e. only their category is taken into account.
+ * These are computed once per line, and the lines of a method are shared by all pairs that it is part of, see {@link TokenStream#toLineList()}.
  */
 public class Line
 {
+    // symbol table ID of the "final" keyword
+    private static final int FINAL_ID = SymbolTable.getInstance().intern("final");
+
     private final String m_lineContent;
     private final List<Token> m_tokens;
 
+    // the symbols of the tokens, without "final" keywords
+    private final int[] m_symbols;
+
+    private final int m_exactFingerprint;
+    private final int m_blindedFingerprint;
+
     /**
      * Constructor.
      *
@@ -37,6 +51,26 @@ public class Line
     {
         m_lineContent = line_content;
         m_tokens = tokens;
+
+        int[] symbols = new int[tokens.size()];
+        int size = 0;
+        int exact_fingerprint = 1;
+        int blinded_fingerprint = 1;
+
+        for (Token token : tokens) {
+            // ignore final keywords, since they may prevent clone detection
+            if(token.getContentId() == FINAL_ID) {
+                continue;
+            }
+
+            symbols[size++] = token.getSymbol();
+            exact_fingerprint = exact_fingerprint * 31 + token.getContentId();
+            blinded_fingerprint = blinded_fingerprint * 31 + token.getBlindedKey();
+        }
+
+        m_symbols = Arrays.copyOf(symbols, size);
+        m_exactFingerprint = exact_fingerprint;
+        m_blindedFingerprint = blinded_fingerprint;
     }
 
     /**
@@ -54,4 +88,45 @@ public class Line
     {
         return m_tokens;
     }
+
+    /**
+     * The number of tokens of the line, without "final" keywords.
+     */
+    public int getSymbolCount()
+    {
+        return m_symbols.length;
+    }
+
+    /**
+     * Retrieve the symbol of the specified token, see {@link Token#getSymbol()}. "final" keywords are not included.
+     */
+    public int getSymbol(int idx)
+    {
+        return m_symbols[idx];
+    }
+
+    /**
+     * Determine whether both lines consist of the same symbols, without "final" keywords. Such lines form a Type-1 match.
+     */
+    public boolean hasEqualSymbols(Line other)
+    {
+        return Arrays.equals(m_symbols, other.m_symbols);
+    }
+
+    /**
+     * Fingerprint of the contents of the tokens, without "final" keywords. Lines whose tokens have equal contents have equal exact fingerprints.
+     */
+    public int getExactFingerprint()
+    {
+        return m_exactFingerprint;
+    }
+
+    /**
+     * Fingerprint in which identifiers and literals only contribute their category, without "final" keywords. Lines whose tokens
+     * match according to {@link Token#compareSymbols(int, int)} have equal blinded fingerprints.
+     */
+    public int getBlindedFingerprint()
+    {
+        return m_blindedFingerprint;
+    }
 }
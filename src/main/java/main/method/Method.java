@@ -25,14 +25,19 @@ import com.github.javaparser.printer.PrettyPrinterConfiguration;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
 /**
  * Represents a method. This contains the exact location of the method, as well as utilities to retrieve multiple representations of the method.
+ *
+ * The parsed method and the representations that are derived from it are computed lazily and at most once. The representations are stored
+ * as compact {@link TokenStream} objects, from which lists of {@link Line} and {@link Token} objects are created on the first request. They are held through
+ * soft references, so that the garbage collector can reclaim them when memory runs low, in which case they will be recomputed on the next request.
+ * If the {@link PreprocessedCache} is enabled, the representations are also stored on disk and reused by later runs.
  */
 public class Method
 {
@@ -40,6 +45,22 @@ public class Method
     private final int m_beginLine;
     private final int m_endLine;
 
+    // lazily computed representations of the method
+    private SoftReference<BodyDeclaration<?>> m_declaration = null;
+    private SoftReference<TokenStream> m_lines = null;
+    private SoftReference<TokenStream> m_tokens = null;
+    private SoftReference<TokenStream> m_preorderLeaves = null;
+    private SoftReference<TokenStream> m_postorderLeaves = null;
+
+    // the methods in the same source file, or null if the method is parsed separately
+    private CompilationUnitGroup m_group = null;
+
+    // whether methods that have not been parsed are tokenized by the lexer, see Method#setLexerTokenization(boolean)
+    private static volatile boolean s_lexerTokenization = false;
+
+    // strong reference to the declaration while all representations are derived from it, see Method#preprocess()
+    private BodyDeclaration<?> m_pinnedDeclaration = null;
+
     /**
      * Constructor.
      *
@@ -79,57 +100,152 @@ public class Method
 
     /**
      * Retrieve the raw source code text of the method. This will simply read the source file and return all lines between begin
-     * and end.
+     * and end. The source file is retrieved through the shared {@link SourceFileCache}, so it is only read once.
      */
     public String getText() throws IOException
     {
-        StringBuilder file_contents = new StringBuilder();
-
-        // read all lines in the file
-        int i = 1;
-        for (String line : Files.readAllLines(m_path.toPath())) {
-            if(i < m_beginLine) {
-                i++;
-                continue;
-            }
+        return this.getTextView().toString();
+    }
 
-            // append to output
-            file_contents.append(line + "\n");
+    /**
+     * Retrieve the raw source code text of the method, as a view on the cached contents of the source file. Unlike
+     * {@link Method#getText()}, this does not copy the text.
+     */
+    public CharSequence getTextView() throws IOException
+    {
+        return SourceFileCache.getInstance().get(m_path).getLines(m_beginLine, m_endLine);
+    }
 
-            if(i >= m_endLine) {
-                break;
-            }
+    /**
+     * Enable or disable the tokenization of methods by the {@link BodyLexer}. If enabled, the tokens of a method whose AST is not
+     * available are produced by the lexer, so that {@link Method#getTokens()} does not parse the method. This is disabled by default.
+     *
+     * The lexer does not detect syntax errors. A method that cannot be parsed is therefore still tokenized, and matched at the token
+     * granularity, instead of being reported as an error.
+     */
+    public static void setLexerTokenization(boolean enabled)
+    {
+        s_lexerTokenization = enabled;
+    }
 
-            i++;
-        }
+    /**
+     * Assign the method to the specified group. The declaration of the method will then be retrieved by parsing the entire source file,
+     * see {@link CompilationUnitGroup}.
+     */
+    void setGroup(CompilationUnitGroup group)
+    {
+        m_group = group;
+    }
 
-        return file_contents.toString();
+    /**
+     * Set the declaration of the method, as found by {@link CompilationUnitGroup}.
+     */
+    void setDeclaration(BodyDeclaration<?> declaration)
+    {
+        m_declaration = new SoftReference<>(declaration);
     }
 
     /**
      * Retrieve the body of the method. This will not include the method signature.
+     * The method is parsed only once, the returned AST is shared and must not be modified.
      */
     public Node getMethodBody(boolean remove_signature) throws IOException
     {
-        BodyDeclaration<?> method_decl = StaticJavaParser.parseBodyDeclaration(this.getText());
+        BodyDeclaration<?> method_decl = M_get(m_declaration);
+
+        // let the group parse the entire source file, this provides the declaration if the line range of the method corresponds with one
+        if(method_decl == null && m_group != null) {
+            m_group.parse();
+            method_decl = M_get(m_declaration);
+        }
+
+        // parse the method separately
+        if(method_decl == null) {
+            method_decl = StaticJavaParser.parseBodyDeclaration(this.getText());
+            m_declaration = new SoftReference<>(method_decl);
+        }
 
         if(remove_signature) {
+            Node body;
             if(method_decl.isMethodDeclaration()) {
-                return method_decl.asMethodDeclaration().getBody().get();
+                body = method_decl.asMethodDeclaration().getBody().get();
             } else if(method_decl.isConstructorDeclaration()) {
-                return method_decl.asConstructorDeclaration().getBody();
+                body = method_decl.asConstructorDeclaration().getBody();
             } else {
                 throw new IllegalStateException("Code does not represent a method or a constructor body.");
             }
+
+            return body;
         } else {
             return method_decl;
         }
     }
 
+    /**
+     * Compute the tokens, the tree traversals, and the lines of the method, so that they are all derived from a single parse. The
+     * declaration is only held through a soft reference, so it is held strongly until all representations have been computed.
+     * Without the {@link PreprocessedCache}, the tokens are then taken from the AST, even if the {@link BodyLexer} is enabled.
+     */
+    public void preprocess() throws IOException
+    {
+        try {
+            // the persistent cache may provide every representation, in which case the method does not need to be parsed
+            boolean missing = M_get(m_tokens) == null || M_get(m_preorderLeaves) == null || M_get(m_postorderLeaves) == null || M_get(m_lines) == null;
+            if(missing && PreprocessedCache.getInstance() == null) {
+                m_pinnedDeclaration = (BodyDeclaration<?>) this.getMethodBody(false);
+            }
+
+            // the lines are computed last, since they are the most likely to fail
+            this.getTokenStream();
+            this.getLeafTraversalStream(true);
+            this.getLeafTraversalStream(false);
+            this.getLineStream();
+        } finally {
+            m_pinnedDeclaration = null;
+        }
+    }
+
     /**
      * Retrieve a line-by-line representation of the source. All whitespace and comments have been removed, and the code has been pretty-printed to enforce a uniform representation.
+     * The {@link Line} objects are created from {@link Method#getLineStream()} once, the returned list is shared and cannot be modified.
      */
     public List<Line> getLines() throws IOException
+    {
+        return this.getLineStream().toLineList();
+    }
+
+    /**
+     * Retrieve the compact representation of {@link Method#getLines()}. The returned stream is divided in lines.
+     */
+    public TokenStream getLineStream() throws IOException
+    {
+        TokenStream retval = M_get(m_lines);
+
+        if(retval == null) {
+            // try the persistent cache before computing the lines
+            PreprocessedCache persistent_cache = PreprocessedCache.getInstance();
+            if(persistent_cache != null) {
+                retval = persistent_cache.readLines(this);
+            }
+
+            if(retval == null) {
+                retval = TokenStream.fromLines(this.M_computeLines());
+
+                if(persistent_cache != null) {
+                    persistent_cache.writeLines(this, retval);
+                }
+            }
+
+            m_lines = new SoftReference<>(retval);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Compute the line-by-line representation of the source, see {@link Method#getLines()}.
+     */
+    private List<Line> M_computeLines() throws IOException
     {
         // set pretty printer to remove comments and whitespace
         PrettyPrinterConfiguration config = new PrettyPrinterConfiguration();
@@ -143,6 +259,28 @@ public class Method
         // split source into lines
         List<String> line_list = Arrays.asList(pretty_printed.split("\n"));
 
+        // the pretty-printed source was produced from the AST, so it can be tokenized by the lexer without parsing it again
+        List<List<Token>> tokenized_source = BodyLexer.tokenizeLines(pretty_printed);
+        if(tokenized_source == null) {
+            tokenized_source = M_parseLines(pretty_printed);
+        }
+
+        List<Line> retval = new ArrayList<>();
+
+        // merge lines and their respective token list
+        for(int i = 0; i < line_list.size(); i++) {
+            retval.add(new Line(line_list.get(i), tokenized_source.get(i)));
+        }
+
+        return retval;
+    }
+
+    /**
+     * Tokenize the specified pretty-printed source line by line, using the parser. This is only needed for source code that the lexer
+     * cannot tokenize reliably, see {@link BodyLexer#tokenizeLines}.
+     */
+    private static List<List<Token>> M_parseLines(String pretty_printed)
+    {
         // parse pretty-printed source so we can tokenize it using Javaparser
         BodyDeclaration normalized_method = StaticJavaParser.parseBodyDeclaration(pretty_printed);
 
@@ -164,20 +302,58 @@ public class Method
             tokenized_source.get(tokenized_source.size() - 1).add(new Token(token));
         }
 
-        List<Line> retval = new ArrayList<>();
+        return tokenized_source;
+    }
 
-        // merge lines and their respective token list
-        for(int i = 0; i < line_list.size(); i++) {
-            retval.add(new Line(line_list.get(i), tokenized_source.get(i)));
+    /**
+     * Retrieve a tokenized representation of the method source code. This will be a tokenized representation of the return value of {@link Method#getText()}.
+     * The {@link Token} objects are created from {@link Method#getTokenStream()} once, the returned list is shared and cannot be modified.
+     */
+    public List<Token> getTokens() throws IOException
+    {
+        return this.getTokenStream().toTokenList();
+    }
+
+    /**
+     * Retrieve the compact representation of {@link Method#getTokens()}. The tokens are taken from the AST, unless the AST is not available
+     * and the lexer has been enabled using {@link Method#setLexerTokenization(boolean)}. In that case the method is only parsed if the
+     * lexer cannot tokenize it reliably.
+     */
+    public TokenStream getTokenStream() throws IOException
+    {
+        TokenStream retval = M_get(m_tokens);
+
+        if(retval == null) {
+            // try the persistent cache before computing the tokens
+            PreprocessedCache persistent_cache = PreprocessedCache.getInstance();
+            if(persistent_cache != null) {
+                retval = persistent_cache.readTokens(this);
+            }
+
+            // tokenize without parsing, unless the AST is available anyway. The tokens are not stored in the persistent cache,
+            // since they are also produced for methods that cannot be parsed
+            if(retval == null && s_lexerTokenization && M_get(m_declaration) == null) {
+                retval = BodyLexer.tokenizeBody(this.getText());
+            }
+
+            if(retval == null) {
+                retval = TokenStream.fromTokens(this.M_computeTokens());
+
+                if(persistent_cache != null) {
+                    persistent_cache.writeTokens(this, retval);
+                }
+            }
+
+            m_tokens = new SoftReference<>(retval);
         }
 
         return retval;
     }
 
     /**
-     * Retrieve a tokenized representation of the method source code. This will be a tokenized representation of the return value of {@link Method#getText()}.
+     * Compute the tokenized representation of the method source code, see {@link Method#getTokens()}.
      */
-    public List<Token> getTokens() throws IOException
+    private List<Token> M_computeTokens() throws IOException
     {
         List<Token> retval = new ArrayList<>();
 
@@ -199,31 +375,104 @@ public class Method
 
     /**
      * Traverse the tree. Each leaf node is converted to a {@link Token}.
+     * The {@link Token} objects are created from {@link Method#getLeafTraversalStream(boolean)} once, the returned list is shared and cannot be modified.
      *
      * @param preorder True if the tree leaves will be traversed in preorder. If false, the postorder traversal will be used.
      */
     public List<Token> getLeafTraversal(boolean preorder) throws IOException
     {
-        List<Token> retval = new ArrayList<>();
+        return this.getLeafTraversalStream(preorder).toTokenList();
+    }
 
-        Iterator<Node> iterator;
+    /**
+     * Retrieve the compact representation of {@link Method#getLeafTraversal(boolean)}.
+     * The pre-order and post-order traversals are computed together, see {@link Method#M_computeLeafTraversal()}.
+     *
+     * @param preorder True if the tree leaves will be traversed in preorder. If false, the postorder traversal will be used.
+     */
+    public TokenStream getLeafTraversalStream(boolean preorder) throws IOException
+    {
+        TokenStream retval = M_get(preorder ? m_preorderLeaves : m_postorderLeaves);
 
-        if(preorder) {
-            iterator = new Node.PreOrderIterator(this.getMethodBody(true));
-        } else {
-            iterator = new Node.PostOrderIterator(this.getMethodBody(true));
-        }
+        if(retval == null) {
+            // try the persistent cache before computing the traversal
+            PreprocessedCache persistent_cache = PreprocessedCache.getInstance();
+            if(persistent_cache != null) {
+                retval = persistent_cache.readLeafTraversal(this, preorder);
+            }
 
-        while(iterator.hasNext()) {
-            Node n = iterator.next();
-            if(n.getChildNodes().size() == 0) {
-                retval.add(new Token(n));
+            if(retval != null) {
+                if(preorder) {
+                    m_preorderLeaves = new SoftReference<>(retval);
+                } else {
+                    m_postorderLeaves = new SoftReference<>(retval);
+                }
+            } else {
+                // a single walk produces both traversals
+                retval = M_computeLeafTraversal();
+
+                if(persistent_cache != null) {
+                    persistent_cache.writeLeafTraversal(this, true, retval);
+                    persistent_cache.writeLeafTraversal(this, false, retval);
+                }
+
+                m_preorderLeaves = new SoftReference<>(retval);
+                m_postorderLeaves = new SoftReference<>(retval);
             }
         }
 
         return retval;
     }
 
+    /**
+     * Compute the traversal of the tree leaves, see {@link Method#getLeafTraversal(boolean)}.
+     *
+     * A pre-order and a post-order traversal only differ in when an inner node is visited relative to its children. A leaf has
+     * no children, so both traversals visit the leaves in the same order, from left to right. The tree is therefore walked once,
+     * and the result is used for both traversals.
+     *
+     * A body without statements has no children, so it is a leaf itself, and the traversal consists of that single node.
+     */
+    private TokenStream M_computeLeafTraversal() throws IOException
+    {
+        int[] symbols = new int[64];
+        int size = 0;
+
+        // explicit stack, so that deep trees do not overflow the call stack
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(this.getMethodBody(true));
+
+        while(!stack.isEmpty()) {
+            Node node = stack.pop();
+
+            // this is a view on the children of the node, no list is copied
+            List<Node> children = node.getChildNodes();
+
+            if(children.isEmpty()) {
+                if(size == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, symbols.length * 2);
+                }
+                symbols[size++] = Token.toSymbol(node.toString(), Token.EnumTokenCategory.fromASTNode(node));
+                continue;
+            }
+
+            // push in reverse, so that the first child is visited first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+
+        return new TokenStream(Arrays.copyOf(symbols, size));
+    }
+
+    /**
+     * Retrieve the object that the specified reference points to, or null if there is no reference or if the object has been reclaimed.
+     */
+    private static <T> T M_get(SoftReference<T> reference)
+    {
+        return reference == null ? null : reference.get();
+    }
+
     @Override
     public String toString() {
         return String.format("%s:%d:%d", m_path.toString(), m_beginLine, m_endLine);
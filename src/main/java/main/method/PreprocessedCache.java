@@ -0,0 +1,348 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent cache of preprocessed methods. This stores the token streams, line streams, and leaf traversals of methods in a directory,
+ * so that subsequent runs on an unchanged corpus do not need to parse the methods again.
+ *
+ * Entries are identified by a hash of the contents of the source file and the line range of the method, so a modified source file will
+ * never produce outdated results. Each entry starts with {@link PreprocessedCache#FORMAT_VERSION}, entries with a different version are ignored.
+ *
+ * The cache is disabled by default, it can be enabled using {@link PreprocessedCache#enable(File)}.
+ */
+public class PreprocessedCache
+{
+    /**
+     * Version of the stored data. This must be incremented whenever the way in which methods are tokenized, pretty-printed, or
+     * traversed changes, or when the file format changes. This invalidates all existing entries.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    // identifies cache entries
+    private static final int MAGIC = 0x434C4E43;
+
+    // the names of the different kinds of entries
+    private static final String KIND_TOKENS = "tokens";
+    private static final String KIND_LINES = "lines";
+    private static final String KIND_PREORDER = "preorder";
+    private static final String KIND_POSTORDER = "postorder";
+
+    // the enabled cache, or null
+    private static PreprocessedCache s_instance = null;
+
+    private final File m_directory;
+
+    private long m_hits = 0;
+    private long m_misses = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory in which the entries will be stored. It will be created if it does not exist.
+     */
+    public PreprocessedCache(File directory) throws IOException
+    {
+        m_directory = directory;
+        Files.createDirectories(directory.toPath());
+    }
+
+    /**
+     * Enable the persistent cache for all {@link Method} instances.
+     *
+     * @param directory The directory in which the entries will be stored. It will be created if it does not exist.
+     */
+    public static synchronized void enable(File directory) throws IOException
+    {
+        s_instance = new PreprocessedCache(directory);
+    }
+
+    /**
+     * Disable the persistent cache. Existing entries are kept on disk.
+     */
+    public static synchronized void disable()
+    {
+        s_instance = null;
+    }
+
+    /**
+     * The cache that is used by all {@link Method} instances, or null if the cache is disabled.
+     */
+    public static synchronized PreprocessedCache getInstance()
+    {
+        return s_instance;
+    }
+
+    /**
+     * The number of entries that were successfully read from the cache.
+     */
+    public synchronized long getHitCount()
+    {
+        return m_hits;
+    }
+
+    /**
+     * The number of entries that were requested, but were not present or outdated.
+     */
+    public synchronized long getMissCount()
+    {
+        return m_misses;
+    }
+
+    /**
+     * Retrieve the stored tokens of the specified method, see {@link Method#getTokens()}.
+     *
+     * @return The tokens, or null if they were not stored.
+     */
+    public TokenStream readTokens(Method method) throws IOException
+    {
+        return M_readEntry(method, KIND_TOKENS, input -> TokenStream.fromTokens(M_readTokenList(input)));
+    }
+
+    /**
+     * Store the tokens of the specified method, see {@link Method#getTokens()}.
+     */
+    public void writeTokens(Method method, TokenStream tokens) throws IOException
+    {
+        M_writeEntry(method, KIND_TOKENS, output -> M_writeTokenList(output, tokens, 0, tokens.size()));
+    }
+
+    /**
+     * Retrieve the stored leaf traversal of the specified method, see {@link Method#getLeafTraversal(boolean)}.
+     *
+     * @return The leaf nodes, or null if they were not stored.
+     */
+    public TokenStream readLeafTraversal(Method method, boolean preorder) throws IOException
+    {
+        return M_readEntry(method, preorder ? KIND_PREORDER : KIND_POSTORDER, input -> TokenStream.fromTokens(M_readTokenList(input)));
+    }
+
+    /**
+     * Store the leaf traversal of the specified method, see {@link Method#getLeafTraversal(boolean)}.
+     */
+    public void writeLeafTraversal(Method method, boolean preorder, TokenStream leaves) throws IOException
+    {
+        M_writeEntry(method, preorder ? KIND_PREORDER : KIND_POSTORDER, output -> M_writeTokenList(output, leaves, 0, leaves.size()));
+    }
+
+    /**
+     * Retrieve the stored lines of the specified method, see {@link Method#getLines()}.
+     *
+     * @return The lines, or null if they were not stored.
+     */
+    public TokenStream readLines(Method method) throws IOException
+    {
+        return M_readEntry(method, KIND_LINES, input -> {
+            int line_count = input.readInt();
+            List<Line> lines = new ArrayList<>(line_count);
+
+            for (int i = 0; i < line_count; i++) {
+                String line_content = M_readString(input);
+                lines.add(new Line(line_content, M_readTokenList(input)));
+            }
+
+            return TokenStream.fromLines(lines);
+        });
+    }
+
+    /**
+     * Store the lines of the specified method, see {@link Method#getLines()}.
+     */
+    public void writeLines(Method method, TokenStream lines) throws IOException
+    {
+        M_writeEntry(method, KIND_LINES, output -> {
+            output.writeInt(lines.getLineCount());
+
+            for (int i = 0; i < lines.getLineCount(); i++) {
+                M_writeString(output, lines.getLineContent(i));
+                M_writeTokenList(output, lines, lines.getLineBegin(i), lines.getLineEnd(i));
+            }
+        });
+    }
+
+    /**
+     * Reads the payload of an entry.
+     */
+    @FunctionalInterface
+    private interface IEntryReader<T>
+    {
+        T read(DataInputStream input) throws IOException;
+    }
+
+    /**
+     * Writes the payload of an entry.
+     */
+    @FunctionalInterface
+    private interface IEntryWriter
+    {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * The file in which the specified entry is stored.
+     */
+    private File M_getEntryFile(Method method, String kind) throws IOException
+    {
+        String hash = SourceFileCache.getInstance().get(method.getPath()).getContentHash();
+
+        // use a subdirectory per hash prefix, to avoid huge directories
+        File subdirectory = new File(m_directory, hash.substring(0, 2));
+
+        return new File(subdirectory, String.format("%s_%d_%d.%s", hash, method.getBegin(), method.getEnd(), kind));
+    }
+
+    /**
+     * Read the specified entry.
+     *
+     * @return The payload of the entry, or null if the entry does not exist, has a different version, or is damaged.
+     */
+    private <T> T M_readEntry(Method method, String kind, IEntryReader<T> reader) throws IOException
+    {
+        File entry_file = M_getEntryFile(method, kind);
+
+        if(!entry_file.isFile()) {
+            M_countAccess(false);
+            return null;
+        }
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry_file.toPath())))) {
+            // outdated entry
+            if(input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                M_countAccess(false);
+                return null;
+            }
+
+            T retval = reader.read(input);
+
+            M_countAccess(true);
+            return retval;
+        } catch (EOFException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            // damaged entry, it will be overwritten
+            M_countAccess(false);
+            return null;
+        }
+    }
+
+    /**
+     * Write the specified entry. The entry is first written to a temporary file, which is then moved to its final location.
+     * The move is atomic when the file system supports it, so that concurrent readers never observe a partially written entry.
+     */
+    private void M_writeEntry(Method method, String kind, IEntryWriter writer) throws IOException
+    {
+        File entry_file = M_getEntryFile(method, kind);
+        Files.createDirectories(entry_file.getParentFile().toPath());
+
+        Path temp_file = Files.createTempFile(entry_file.getParentFile().toPath(), entry_file.getName(), ".tmp");
+
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp_file)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                writer.write(output);
+            }
+
+            try {
+                Files.move(temp_file, entry_file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp_file, entry_file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // only exists if something went wrong
+            Files.deleteIfExists(temp_file);
+        }
+    }
+
+    /**
+     * Update the statistics.
+     */
+    private synchronized void M_countAccess(boolean hit)
+    {
+        if(hit) {
+            m_hits++;
+        } else {
+            m_misses++;
+        }
+    }
+
+    /**
+     * Read a list of tokens that was written by {@link PreprocessedCache#M_writeTokenList}.
+     */
+    private static List<Token> M_readTokenList(DataInputStream input) throws IOException
+    {
+        int token_count = input.readInt();
+        List<Token> retval = new ArrayList<>(token_count);
+
+        for (int i = 0; i < token_count; i++) {
+            String contents = M_readString(input);
+            Token.EnumTokenCategory category = Token.EnumTokenCategory.values()[input.readByte()];
+            retval.add(new Token(contents, category));
+        }
+
+        return retval;
+    }
+
+    /**
+     * Write the specified range of tokens as a list of tokens.
+     */
+    private static void M_writeTokenList(DataOutputStream output, TokenStream tokens, int begin, int end) throws IOException
+    {
+        output.writeInt(end - begin);
+
+        for (int i = begin; i < end; i++) {
+            M_writeString(output, tokens.getContents(i));
+            output.writeByte(tokens.getCategory(i).ordinal());
+        }
+    }
+
+    /**
+     * Read a string that was written by {@link PreprocessedCache#M_writeString}.
+     */
+    private static String M_readString(DataInputStream input) throws IOException
+    {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a string. Unlike {@link DataOutputStream#writeUTF(String)}, this does not limit the length of the string.
+     */
+    private static void M_writeString(DataOutputStream output, String str) throws IOException
+    {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The decoded contents of a source file, together with an index of the offsets at which each line starts. This allows for
+ * retrieving any range of lines in constant time, without copying.
+ *
+ * All line terminators ("\n", "\r\n", and "\r") are normalized to "\n", and the last line is always terminated, so that the
+ * contents are equal to the lines returned by {@link Files#readAllLines(java.nio.file.Path)}, each followed by "\n".
+ */
+public class SourceFile
+{
+    private final String m_contents;
+
+    // m_lineOffsets[i] is the offset of the first character of line i+1, the last element is the length of the contents
+    private final int[] m_lineOffsets;
+
+    private final long m_size;
+
+    // computed on first request
+    private String m_contentHash = null;
+
+    /**
+     * Constructor.
+     *
+     * @param raw_contents The decoded contents of the file, line terminators do not need to be normalized.
+     * @param size The size of the file in bytes.
+     */
+    public SourceFile(CharSequence raw_contents, long size)
+    {
+        StringBuilder contents = new StringBuilder(raw_contents.length() + 1);
+        int[] offsets = new int[64];
+        int line_count = 0;
+
+        // normalize line terminators and record where each line starts
+        int line_start = 0;
+        for (int i = 0; i < raw_contents.length(); i++) {
+            char c = raw_contents.charAt(i);
+
+            if(c != '\r' && c != '\n') {
+                contents.append(c);
+                continue;
+            }
+
+            // "\r\n" is a single terminator
+            if(c == '\r' && i + 1 < raw_contents.length() && raw_contents.charAt(i + 1) == '\n') {
+                i++;
+            }
+
+            contents.append('\n');
+
+            if(line_count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[line_count++] = line_start;
+            line_start = contents.length();
+        }
+
+        // the last line may not be terminated
+        if(line_start < contents.length()) {
+            contents.append('\n');
+
+            if(line_count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[line_count++] = line_start;
+        }
+
+        offsets[line_count] = contents.length();
+
+        m_contents = contents.toString();
+        m_lineOffsets = Arrays.copyOf(offsets, line_count + 1);
+        m_size = size;
+    }
+
+    /**
+     * Read and decode the specified file. The file must be encoded in UTF-8.
+     *
+     * @param path The path of the file.
+     *
+     * @throws IOException If the file cannot be read, or if it is not valid UTF-8.
+     */
+    public static SourceFile read(File path) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(path.toPath());
+
+        // use a decoder that reports malformed input, like Files.readAllLines does
+        CharBuffer decoded = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes));
+
+        return new SourceFile(decoded, bytes.length);
+    }
+
+    /**
+     * The number of lines in the file.
+     */
+    public int getLineCount()
+    {
+        return m_lineOffsets.length - 1;
+    }
+
+    /**
+     * The size of the file in bytes.
+     */
+    public long getSize()
+    {
+        return m_size;
+    }
+
+    /**
+     * A SHA-256 hash of the normalized contents of the file, in hexadecimal notation.
+     */
+    public synchronized String getContentHash()
+    {
+        if(m_contentHash == null) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(m_contents.getBytes(StandardCharsets.UTF_8));
+
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest) {
+                    hex.append(String.format("%02x", b));
+                }
+
+                m_contentHash = hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform is required to support SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return m_contentHash;
+    }
+
+    /**
+     * The normalized contents of the entire file.
+     */
+    public String getContents()
+    {
+        return m_contents;
+    }
+
+    /**
+     * Retrieve the specified range of lines, each terminated by "\n". The returned sequence is a view on the contents of
+     * the file, no characters are copied.
+     *
+     * The range is interpreted the same way as {@link Method#getText()} always has: lines before the first line of the file
+     * and after the last line of the file are ignored, and at least the first line of the range is included if it exists.
+     *
+     * @param begin_line The number of the first line (1-indexed).
+     * @param end_line The number of the last line (1-indexed, inclusive).
+     */
+    public CharSequence getLines(int begin_line, int end_line)
+    {
+        int first = Math.max(begin_line, 1);
+        int last = Math.min(Math.max(end_line, first), this.getLineCount());
+
+        // range lies entirely after the end of the file
+        if(first > last) {
+            return "";
+        }
+
+        return CharBuffer.wrap(m_contents, m_lineOffsets[first - 1], m_lineOffsets[last]);
+    }
+}
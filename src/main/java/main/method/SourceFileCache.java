@@ -0,0 +1,186 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of source files. Each file is read and decoded only once, as long as it is not modified and has not been
+ * evicted. Entries are identified by the path of the file and its modification time, and the cache is bounded by the total size
+ * of the cached files. When the bound is exceeded, the least recently used files are evicted first.
+ */
+public class SourceFileCache
+{
+    /**
+     * The default bound on the total size of the cached files, in bytes.
+     */
+    public static final long DEFAULT_CAPACITY = 256L * 1024L * 1024L;
+
+    private static final SourceFileCache INSTANCE = new SourceFileCache(DEFAULT_CAPACITY);
+
+    /**
+     * A single cached file.
+     */
+    private static class Entry
+    {
+        private final long m_lastModified;
+        private final SourceFile m_file;
+
+        private Entry(long last_modified, SourceFile file)
+        {
+            m_lastModified = last_modified;
+            m_file = file;
+        }
+    }
+
+    private final long m_capacity;
+
+    // map in access-order, so that the first entry is always the least recently used one
+    private final LinkedHashMap<String, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long m_cachedSize = 0;
+
+    private long m_hits = 0;
+    private long m_misses = 0;
+    private long m_evictions = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The maximum total size of the cached files, in bytes.
+     */
+    public SourceFileCache(long capacity)
+    {
+        m_capacity = capacity;
+    }
+
+    /**
+     * The cache that is shared by all {@link Method} instances.
+     */
+    public static SourceFileCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieve the specified file. The file will only be read if it is not cached, or if it has been modified since it was cached.
+     *
+     * @param path The path of the source file.
+     */
+    public synchronized SourceFile get(File path) throws IOException
+    {
+        String key = path.getAbsolutePath();
+        long last_modified = Files.getLastModifiedTime(path.toPath()).toMillis();
+
+        // check whether the cached version is still up to date
+        Entry entry = m_entries.get(key);
+        if(entry != null && entry.m_lastModified == last_modified) {
+            m_hits++;
+            return entry.m_file;
+        }
+
+        m_misses++;
+
+        // outdated entries are replaced
+        if(entry != null) {
+            M_remove(key);
+        }
+
+        SourceFile file = SourceFile.read(path);
+
+        // files that do not fit in the cache are not cached at all
+        if(file.getSize() <= m_capacity) {
+            m_entries.put(key, new Entry(last_modified, file));
+            m_cachedSize += file.getSize();
+            M_evict();
+        }
+
+        return file;
+    }
+
+    /**
+     * Remove all entries from the cache. The statistics are not reset.
+     */
+    public synchronized void clear()
+    {
+        m_entries.clear();
+        m_cachedSize = 0;
+    }
+
+    /**
+     * The number of requests that were served from the cache.
+     */
+    public synchronized long getHitCount()
+    {
+        return m_hits;
+    }
+
+    /**
+     * The number of requests that required the file to be read.
+     */
+    public synchronized long getMissCount()
+    {
+        return m_misses;
+    }
+
+    /**
+     * The number of files that were removed from the cache to stay within the size bound.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return m_evictions;
+    }
+
+    /**
+     * The total size of the files that are currently cached, in bytes.
+     */
+    public synchronized long getCachedSize()
+    {
+        return m_cachedSize;
+    }
+
+    /**
+     * Remove the entry with the specified key.
+     */
+    private void M_remove(String key)
+    {
+        Entry removed = m_entries.remove(key);
+
+        if(removed != null) {
+            m_cachedSize -= removed.m_file.getSize();
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until the total size is within the bound.
+     */
+    private void M_evict()
+    {
+        Iterator<Map.Entry<String, Entry>> iterator = m_entries.entrySet().iterator();
+
+        while(m_cachedSize > m_capacity && iterator.hasNext()) {
+            m_cachedSize -= iterator.next().getValue().m_file.getSize();
+            iterator.remove();
+            m_evictions++;
+        }
+    }
+}
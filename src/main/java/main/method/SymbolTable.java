@@ -0,0 +1,90 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global table that assigns a unique integer ID to the contents of each token. Two tokens have equal contents if and only if
+ * their IDs are equal, so that tokens can be compared without comparing strings.
+ */
+public class SymbolTable
+{
+    private static final SymbolTable INSTANCE = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> m_ids = new ConcurrentHashMap<>();
+
+    // the contents per ID. The array is replaced by a larger copy when it is full, so that it can be read without locking.
+    private volatile String[] m_contents = new String[1024];
+    private int m_size = 0;
+
+    /**
+     * The table that is shared by all {@link Token} instances.
+     */
+    public static SymbolTable getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieve the ID of the specified token contents. A new ID is assigned if the contents have not been encountered before.
+     */
+    public int intern(String contents)
+    {
+        // fast path, without locking
+        Integer id = m_ids.get(contents);
+        if(id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            // the contents may have been added in the meantime
+            id = m_ids.get(contents);
+            if(id != null) {
+                return id;
+            }
+
+            if(m_size == m_contents.length) {
+                m_contents = Arrays.copyOf(m_contents, m_contents.length * 2);
+            }
+
+            id = m_size++;
+            m_contents[id] = contents;
+            m_ids.put(contents, id);
+
+            return id;
+        }
+    }
+
+    /**
+     * Retrieve the token contents that correspond to the specified ID.
+     */
+    public String getContents(int id)
+    {
+        return m_contents[id];
+    }
+
+    /**
+     * The number of different token contents in the table.
+     */
+    public synchronized int size()
+    {
+        return m_size;
+    }
+}
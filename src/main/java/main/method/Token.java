@@ -22,13 +22,58 @@ import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.*;
 import main.clone.EnumCloneType;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A lexical token. This is used for both tokens and tree nodes.
+ *
+ * Each token also has an integer symbol, which encodes both the contents and the category of the token. The contents are
+ * encoded by their ID in the {@link SymbolTable}, which is stored in the upper bits. The category is stored in the lowest {@link Token#CATEGORY_BITS} bits.
+ * This allows for comparing tokens using only integer operations, see {@link Token#compareSymbols(int, int)}.
  */
 public class Token
 {
+    /**
+     * The number of bits of a symbol that encode the category.
+     */
+    public static final int CATEGORY_BITS = 2;
+
+    /**
+     * Mask that selects the bits of a symbol that encode the category.
+     */
+    public static final int CATEGORY_MASK = (1 << CATEGORY_BITS) - 1;
+
+    /**
+     * Result of {@link Token#matchSymbols(int, int)}: the tokens do not match.
+     */
+    public static final byte NO_MATCH = 0;
+
+    /**
+     * Result of {@link Token#matchSymbols(int, int)}: the tokens form a parameterized match.
+     */
+    public static final byte TYPE_2_MATCH = 1;
+
+    /**
+     * Result of {@link Token#matchSymbols(int, int)}: the tokens are equal.
+     */
+    public static final byte TYPE_1_MATCH = 2;
+
+    // cached, since EnumTokenCategory.values() creates a new array on each call
+    private static final EnumTokenCategory[] CATEGORIES = EnumTokenCategory.values();
+
+    // words that can never be identifiers, see Token#getBlindedKey()
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue", "default", "do",
+            "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof",
+            "int", "interface", "long", "native", "new", "package", "private", "protected", "public", "return", "short", "static",
+            "strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while", "_"
+    ));
+
     private final String m_contents;
     private final EnumTokenCategory m_category;
+    private final int m_symbol;
 
     /**
      * Construct a token from the specified Javaparser token.
@@ -56,6 +101,17 @@ public class Token
     {
         m_contents = contents;
         m_category = cat;
+        m_symbol = toSymbol(contents, cat);
+    }
+
+    /**
+     * Construct a token from its symbol, see {@link Token#getSymbol()}.
+     */
+    public Token(int symbol)
+    {
+        m_contents = getContents(symbol);
+        m_category = getCategory(symbol);
+        m_symbol = symbol;
     }
 
     /**
@@ -74,6 +130,72 @@ public class Token
         return m_category;
     }
 
+    /**
+     * The integer symbol that encodes both the contents and the category of the token.
+     */
+    public int getSymbol()
+    {
+        return m_symbol;
+    }
+
+    /**
+     * The ID of the contents of the token in the {@link SymbolTable}.
+     */
+    public int getContentId()
+    {
+        return m_symbol >>> CATEGORY_BITS;
+    }
+
+    /**
+     * Key in which identifiers and literals only contribute their category. Tokens that match according to {@link Token#compareSymbols(int, int)}
+     * always have equal blinded keys. The contents of a token of another category may also occur as an identifier or a literal, for example
+     * a restricted keyword, or the name of an annotation in a tree traversal. Such a token receives the key of that category.
+     */
+    public int getBlindedKey()
+    {
+        EnumTokenCategory category = m_category;
+
+        if(category == EnumTokenCategory.OTHER && !m_contents.isEmpty()) {
+            char first = m_contents.charAt(0);
+
+            if(Character.isDigit(first) || first == '"' || first == '\''
+                    || (first == '.' && m_contents.length() > 1 && Character.isDigit(m_contents.charAt(1)))
+                    || m_contents.equals("true") || m_contents.equals("false") || m_contents.equals("null"))
+            {
+                category = EnumTokenCategory.LITERAL;
+            } else if(Character.isJavaIdentifierStart(first) && !RESERVED_WORDS.contains(m_contents)) {
+                category = EnumTokenCategory.IDENTIFIER;
+            }
+        }
+
+        // negative values for the categories, so that they do not collide with content IDs
+        return category == EnumTokenCategory.OTHER ? getContentId() : -1 - category.ordinal();
+    }
+
+    /**
+     * Compute the symbol of a token with the specified contents and category, see {@link Token#getSymbol()}.
+     */
+    public static int toSymbol(String contents, EnumTokenCategory cat)
+    {
+        return (SymbolTable.getInstance().intern(contents) << CATEGORY_BITS) | cat.ordinal();
+    }
+
+    /**
+     * Retrieve the contents of the token with the specified symbol.
+     */
+    public static String getContents(int symbol)
+    {
+        return SymbolTable.getInstance().getContents(symbol >>> CATEGORY_BITS);
+    }
+
+    /**
+     * Retrieve the category of the token with the specified symbol.
+     */
+    public static EnumTokenCategory getCategory(int symbol)
+    {
+        return CATEGORIES[symbol & CATEGORY_MASK];
+    }
+
     /**
      * Enum that lists the different categories that a token can belong to. This is so that when comparing tokens, the type
      * of the token can be taken into account.
@@ -138,8 +260,13 @@ public class Token
      * @return TYPE_1 if the contents are equal, TYPE_2 if they are both identifiers or literals of the same type, null otherwise.
      */
     public static EnumCloneType compareTokens(Token A, Token B, boolean ignore_case) {
-        if(A.getContents().equals(B.getContents()) // check exact
-                || (ignore_case && A.getContents().equalsIgnoreCase(B.getContents()))) // check without case
+        // the case-sensitive comparison only requires the symbols
+        if(!ignore_case) {
+            return compareSymbols(A.m_symbol, B.m_symbol);
+        }
+
+        if(A.getContentId() == B.getContentId() // check exact
+                || A.getContents().equalsIgnoreCase(B.getContents())) // check without case
         {
             return EnumCloneType.TYPE_1;
         } else if (Token.EnumTokenCategory.isParameterizedMatch(A.getCategory(), B.getCategory())) {
@@ -148,4 +275,50 @@ public class Token
 
         return null;
     }
+
+    /**
+     * Compare two tokens, given their symbols. This is equivalent to {@link Token#compareTokens(Token, Token, boolean)} without ignoring case,
+     * but only uses integer operations.
+     *
+     * @param symbol_A The symbol of the first token.
+     * @param symbol_B The symbol of the second token.
+     *
+     * @return TYPE_1 if the contents are equal, TYPE_2 if they are both identifiers or literals of the same type, null otherwise.
+     */
+    public static EnumCloneType compareSymbols(int symbol_A, int symbol_B)
+    {
+        switch (matchSymbols(symbol_A, symbol_B)) {
+            case TYPE_1_MATCH:
+                return EnumCloneType.TYPE_1;
+            case TYPE_2_MATCH:
+                return EnumCloneType.TYPE_2;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Variant of {@link Token#compareSymbols(int, int)} that returns a primitive code, so that no object is involved in the comparison.
+     *
+     * @param symbol_A The symbol of the first token.
+     * @param symbol_B The symbol of the second token.
+     *
+     * @return {@link Token#TYPE_1_MATCH}, {@link Token#TYPE_2_MATCH}, or {@link Token#NO_MATCH}.
+     */
+    public static byte matchSymbols(int symbol_A, int symbol_B)
+    {
+        int difference = symbol_A ^ symbol_B;
+
+        // the contents are equal if all bits above the category bits are equal
+        if((difference >>> CATEGORY_BITS) == 0) {
+            return TYPE_1_MATCH;
+        }
+
+        // parameterized match if the categories are equal, and the category is not OTHER
+        if((difference & CATEGORY_MASK) == 0 && (symbol_A & CATEGORY_MASK) != EnumTokenCategory.OTHER.ordinal()) {
+            return TYPE_2_MATCH;
+        }
+
+        return NO_MATCH;
+    }
 }
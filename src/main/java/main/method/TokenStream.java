@@ -0,0 +1,246 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact representation of a sequence of tokens. Instead of {@link Token} objects, only the symbols of the tokens are stored in
+ * a primitive array, see {@link Token#getSymbol()}. The category of each token is encoded in the lowest bits of its symbol.
+ *
+ * Optionally, the tokens can be divided in lines. In that case the stream also stores the offset of the first token of each line,
+ * and the text of each line.
+ *
+ * The lists of {@link Token} and {@link Line} objects are created at most once per stream, and held through soft references. A stream
+ * that is cached by a {@link Method} therefore provides the same lists to every pair that the method is part of.
+ */
+public class TokenStream
+{
+    private final int[] m_symbols;
+
+    // m_lineOffsets[i] is the index of the first token of line i, the last element is the number of tokens. Null if there are no lines.
+    private final int[] m_lineOffsets;
+    private final String[] m_lineContents;
+
+    // lazily created lists of objects, see TokenStream#toTokenList() and TokenStream#toLineList()
+    private SoftReference<List<Token>> m_tokenList = null;
+    private SoftReference<List<Line>> m_lineList = null;
+
+    /**
+     * Constructor for a stream that is not divided in lines.
+     *
+     * @param symbols The symbols of the tokens.
+     */
+    public TokenStream(int[] symbols)
+    {
+        this(symbols, null, null);
+    }
+
+    /**
+     * Constructor for a stream that is divided in lines.
+     *
+     * @param symbols The symbols of the tokens.
+     * @param line_offsets For each line, the index of its first token, followed by the total number of tokens.
+     * @param line_contents The text of each line.
+     */
+    public TokenStream(int[] symbols, int[] line_offsets, String[] line_contents)
+    {
+        m_symbols = symbols;
+        m_lineOffsets = line_offsets;
+        m_lineContents = line_contents;
+    }
+
+    /**
+     * Create a stream that contains the specified tokens.
+     */
+    public static TokenStream fromTokens(List<Token> tokens)
+    {
+        int[] symbols = new int[tokens.size()];
+
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = tokens.get(i).getSymbol();
+        }
+
+        return new TokenStream(symbols);
+    }
+
+    /**
+     * Create a stream that contains the tokens of the specified lines, divided in lines.
+     */
+    public static TokenStream fromLines(List<Line> lines)
+    {
+        int[] line_offsets = new int[lines.size() + 1];
+        String[] line_contents = new String[lines.size()];
+
+        // determine where each line starts
+        for (int i = 0; i < lines.size(); i++) {
+            line_offsets[i + 1] = line_offsets[i] + lines.get(i).getTokens().size();
+            line_contents[i] = lines.get(i).getLineContent();
+        }
+
+        // concatenate the tokens of all lines
+        int[] symbols = new int[line_offsets[lines.size()]];
+        for (int i = 0; i < lines.size(); i++) {
+            List<Token> tokens = lines.get(i).getTokens();
+
+            for (int j = 0; j < tokens.size(); j++) {
+                symbols[line_offsets[i] + j] = tokens.get(j).getSymbol();
+            }
+        }
+
+        return new TokenStream(symbols, line_offsets, line_contents);
+    }
+
+    /**
+     * The number of tokens in the stream.
+     */
+    public int size()
+    {
+        return m_symbols.length;
+    }
+
+    /**
+     * The symbol of the token at the specified index, see {@link Token#getSymbol()}.
+     */
+    public int getSymbol(int idx)
+    {
+        return m_symbols[idx];
+    }
+
+    /**
+     * The category of the token at the specified index.
+     */
+    public Token.EnumTokenCategory getCategory(int idx)
+    {
+        return Token.getCategory(m_symbols[idx]);
+    }
+
+    /**
+     * The contents of the token at the specified index.
+     */
+    public String getContents(int idx)
+    {
+        return Token.getContents(m_symbols[idx]);
+    }
+
+    /**
+     * Create a stream that contains the specified range of tokens. The new stream is not divided in lines.
+     *
+     * @param begin The index of the first token.
+     * @param end The index after the last token.
+     */
+    public TokenStream subStream(int begin, int end)
+    {
+        return new TokenStream(Arrays.copyOfRange(m_symbols, begin, end));
+    }
+
+    /**
+     * Whether the stream is divided in lines.
+     */
+    public boolean hasLines()
+    {
+        return m_lineOffsets != null;
+    }
+
+    /**
+     * The number of lines in the stream. Only valid if the stream is divided in lines.
+     */
+    public int getLineCount()
+    {
+        return m_lineContents.length;
+    }
+
+    /**
+     * The index of the first token of the specified line. Only valid if the stream is divided in lines.
+     */
+    public int getLineBegin(int line_idx)
+    {
+        return m_lineOffsets[line_idx];
+    }
+
+    /**
+     * The index after the last token of the specified line. Only valid if the stream is divided in lines.
+     */
+    public int getLineEnd(int line_idx)
+    {
+        return m_lineOffsets[line_idx + 1];
+    }
+
+    /**
+     * The text of the specified line. Only valid if the stream is divided in lines.
+     */
+    public String getLineContent(int line_idx)
+    {
+        return m_lineContents[line_idx];
+    }
+
+    /**
+     * Convert the stream to a list of {@link Token} objects. The list is created once, and shared by later calls, so it cannot be modified.
+     */
+    public List<Token> toTokenList()
+    {
+        List<Token> retval = m_tokenList == null ? null : m_tokenList.get();
+
+        if(retval == null) {
+            retval = Collections.unmodifiableList(M_toTokenList(0, m_symbols.length));
+            m_tokenList = new SoftReference<>(retval);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Convert the stream to a list of {@link Line} objects. Only valid if the stream is divided in lines.
+     * The list and its lines are created once, and shared by later calls, so they cannot be modified.
+     */
+    public List<Line> toLineList()
+    {
+        List<Line> retval = m_lineList == null ? null : m_lineList.get();
+
+        if(retval == null) {
+            List<Line> lines = new ArrayList<>(m_lineContents.length);
+
+            for (int i = 0; i < m_lineContents.length; i++) {
+                lines.add(new Line(m_lineContents[i], Collections.unmodifiableList(M_toTokenList(m_lineOffsets[i], m_lineOffsets[i + 1]))));
+            }
+
+            retval = Collections.unmodifiableList(lines);
+            m_lineList = new SoftReference<>(retval);
+        }
+
+        return retval;
+    }
+
+    /**
+     * Convert the specified range of tokens to a list of {@link Token} objects.
+     */
+    private List<Token> M_toTokenList(int begin, int end)
+    {
+        List<Token> retval = new ArrayList<>(end - begin);
+
+        for (int i = begin; i < end; i++) {
+            retval.add(new Token(m_symbols[i]));
+        }
+
+        return retval;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main;
+
+import main.clone.ClonePair;
+import main.clone.EnumCloneType;
+import main.clone.XMLCloneIndexReader;
+import main.matching.IMatcher;
+import main.matching.MatchingException;
+import org.junit.Assert;
+import org.junit.Assume;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+/**
+ * Datasets that are used by the tests.
+ *
+ * The fixture in src/test/resources/fixture is always available. The labelled clone index is only used if its location is specified using the
+ * system properties "clone.index" (the XML file) and "clone.sources" (the source directory), see build.gradle.
+ */
+public class TestData
+{
+    /**
+     * Minimum sizes of the clone segment, from disabled to strict. Each is used together with the minimum density at the same index.
+     */
+    public static final int[] MIN_SIZES = {-1, 5, 10, 30, 3, 100};
+
+    /**
+     * Minimum densities of the clone segment, see {@link TestData#MIN_SIZES}.
+     */
+    public static final float[] MIN_DENSITIES = {-1, 0.5f, 0.8f, 0.5f, 0.95f, 0.5f};
+
+    /**
+     * Retrieve a file from the test resources.
+     *
+     * @param name The path of the file, relative to the resource root.
+     */
+    public static File getResource(String name)
+    {
+        try {
+            return new File(TestData.class.getResource("/" + name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read the clone pairs of the fixture. Each call returns new {@link main.method.Method} objects.
+     */
+    public static List<ClonePair> readFixture() throws IOException
+    {
+        return readFixture(false);
+    }
+
+    /**
+     * Read the clone pairs of the fixture. Each call returns new {@link main.method.Method} objects.
+     *
+     * @param group_by_file True if the methods are grouped by source file, see {@link main.method.CompilationUnitGroup}.
+     */
+    public static List<ClonePair> readFixture(boolean group_by_file) throws IOException
+    {
+        return XMLCloneIndexReader.readIndex(getResource("fixture/index.xml"), getResource("fixture"), group_by_file);
+    }
+
+    /**
+     * The classification of the pair, or "null" if the matcher reports an error.
+     */
+    public static EnumCloneType classify(IMatcher matcher, ClonePair pair)
+    {
+        try {
+            return matcher.match(pair.getMethod1(), pair.getMethod2()).classify();
+        } catch (MatchingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check that both matchers give the same classification for each clone pair.
+     */
+    public static void assertVerdictsEqual(List<ClonePair> pairs, IMatcher expected, IMatcher actual)
+    {
+        for (ClonePair pair : pairs) {
+            String description = pair.getMethod1() + " / " + pair.getMethod2();
+            Assert.assertEquals(description, classify(expected, pair), classify(actual, pair));
+        }
+    }
+
+    /**
+     * Read the clone pairs of the labelled clone index. The calling test is skipped if the location of the index has not been specified.
+     */
+    public static List<ClonePair> readLabelledIndex() throws IOException
+    {
+        String index_path = System.getProperty("clone.index");
+        String sources_path = System.getProperty("clone.sources");
+        Assume.assumeTrue("The labelled clone index has not been specified", index_path != null && sources_path != null);
+
+        return XMLCloneIndexReader.readIndex(new File(index_path), new File(sources_path));
+    }
+}
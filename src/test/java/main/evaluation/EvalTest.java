@@ -0,0 +1,101 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package main.evaluation;
+
+import main.TestData;
+import main.clone.ClonePair;
+import main.clone.EnumCloneType;
+import main.matching.IMatcher;
+import main.matching.LineMatching;
+import main.matching.MatchingException;
+import main.matching.MultiGranularityMatcher;
+import main.matching.SequenceComparisonAlgos;
+import main.matching.TokenMatching;
+import main.matching.TraversalTreeMatching;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that evaluating several granularities in a single pass gives the same results as evaluating each granularity separately.
+ */
+public class EvalTest
+{
+    @Test
+    public void testMultiGranularityFixture() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readFixture();
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+
+            IMatcher token_matcher = (method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density);
+
+            Map<String, IMatcher> matchers = new LinkedHashMap<>();
+            matchers.put("line", (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, true));
+            matchers.put("token", token_matcher);
+            matchers.put("tree_preorder", (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, true));
+            matchers.put("tree_postorder", (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, false));
+
+            // fails for some of the pairs
+            matchers.put("partial", (method1, method2) -> {
+                if(method1.getBegin() % 2 == 0) {
+                    throw new MatchingException(new IllegalStateException("Even line."));
+                }
+                return token_matcher.match(method1, method2);
+            });
+
+            // fails for every pair
+            matchers.put("failing", (method1, method2) -> {
+                throw new MatchingException(new IllegalStateException("Always fails."));
+            });
+
+            Map<String, Eval.Result> results = Eval.eval(pairs, pairs.size(), new MultiGranularityMatcher(matchers), false);
+            assertEquals(List.copyOf(matchers.keySet()), List.copyOf(results.keySet()));
+
+            for (Map.Entry<String, IMatcher> entry : matchers.entrySet()) {
+                M_assertResultsEqual(entry.getKey(), Eval.eval(pairs, pairs.size(), entry.getValue(), false), results.get(entry.getKey()));
+            }
+
+            // the errors of the other granularities are not counted for these granularities
+            assertEquals(0, results.get("token").getErroredPairs());
+            assertTrue(results.get("partial").getErroredPairs() > 0);
+            assertTrue(results.get("partial").getErroredPairs() < pairs.size());
+            assertEquals(pairs.size(), results.get("failing").getErroredPairs());
+        }
+    }
+
+    /**
+     * Check that both results contain the same pairs and the same confusion matrix.
+     */
+    private static void M_assertResultsEqual(String granularity, Eval.Result expected, Eval.Result actual)
+    {
+        assertEquals(granularity, expected.getCorrectPairs(), actual.getCorrectPairs());
+        assertEquals(granularity, expected.getMisclassifiedClonePairs(), actual.getMisclassifiedClonePairs());
+        assertEquals(granularity, expected.getErroredPairs(), actual.getErroredPairs());
+
+        for (EnumCloneType cls : EnumCloneType.values()) {
+            assertEquals(granularity, expected.getConfusionMatrix().getBinaryMatrix(cls).toString(), actual.getConfusionMatrix().getBinaryMatrix(cls).toString());
+        }
+    }
+}
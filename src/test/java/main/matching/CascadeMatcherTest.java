@@ -0,0 +1,112 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package main.matching;
+
+import main.TestData;
+import main.clone.ClonePair;
+import main.method.Line;
+import main.method.Method;
+import main.method.Token;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link CascadeMatcher} never changes the classification of the matcher that it wraps.
+ */
+public class CascadeMatcherTest
+{
+    @Test
+    public void testFixture() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readFixture();
+        long exact_resolved = 0;
+        long blinded_resolved = 0;
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+
+            for (boolean braces_postprocessing : new boolean[] {false, true}) {
+                IMatcher line_matcher = (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, braces_postprocessing);
+                CascadeMatcher<Line> line_cascade = CascadeMatcher.forLines(line_matcher, braces_postprocessing, min_size, min_density);
+
+                TestData.assertVerdictsEqual(pairs, line_matcher, line_cascade);
+                exact_resolved += line_cascade.getExactResolvedCount();
+                blinded_resolved += line_cascade.getBlindedResolvedCount();
+            }
+
+            IMatcher token_matcher = (method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density);
+            IMatcher preorder_matcher = (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, true);
+            IMatcher postorder_matcher = (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, false);
+
+            CascadeMatcher<Token> token_cascade = CascadeMatcher.forTokens(token_matcher, Method::getTokens, min_size, min_density);
+            CascadeMatcher<Token> preorder_cascade = CascadeMatcher.forTokens(preorder_matcher, method -> method.getLeafTraversal(true), min_size, min_density);
+            CascadeMatcher<Token> postorder_cascade = CascadeMatcher.forTokens(postorder_matcher, method -> method.getLeafTraversal(false), min_size, min_density);
+
+            TestData.assertVerdictsEqual(pairs, token_matcher, token_cascade);
+            TestData.assertVerdictsEqual(pairs, preorder_matcher, preorder_cascade);
+            TestData.assertVerdictsEqual(pairs, postorder_matcher, postorder_cascade);
+
+            for (CascadeMatcher<Token> cascade : List.of(token_cascade, preorder_cascade, postorder_cascade)) {
+                exact_resolved += cascade.getExactResolvedCount();
+                blinded_resolved += cascade.getBlindedResolvedCount();
+            }
+        }
+
+        // both stages must resolve pairs of the fixture
+        assertTrue(exact_resolved > 0);
+        assertTrue(blinded_resolved > 0);
+    }
+
+    /**
+     * Fingerprints that always collide send every pair with the same number of units to the positional comparison, which must
+     * reject the pairs whose units do not match.
+     */
+    @Test
+    public void testCollisions() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readFixture();
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+
+            IMatcher line_matcher = (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, true);
+            IMatcher token_matcher = (method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density);
+
+            CascadeMatcher<Line> line_cascade = new CascadeMatcher<>(line_matcher, Method::getLines, line -> 0, line -> 0, LineMatching::M_compareLines,
+                    LineMatching::M_filterBracketMatches, min_size, min_density);
+            CascadeMatcher<Token> token_cascade = new CascadeMatcher<>(token_matcher, Method::getTokens, token -> 0, token -> 0,
+                    (token1, token2) -> Token.compareSymbols(token1.getSymbol(), token2.getSymbol()), null, min_size, min_density);
+
+            TestData.assertVerdictsEqual(pairs, line_matcher, line_cascade);
+            TestData.assertVerdictsEqual(pairs, token_matcher, token_cascade);
+
+            // the exact fingerprints are always equal, so the stages can only be told apart by the matches that were found
+            assertTrue(line_cascade.getBlindedResolvedCount() > 0);
+            assertTrue(token_cascade.getBlindedResolvedCount() > 0);
+
+            // some pairs with the same number of units still have to be aligned
+            assertTrue(line_cascade.getFullyMatchedCount() > 0);
+            assertTrue(token_cascade.getFullyMatchedCount() > 0);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package main.matching;
+
+import main.TestData;
+import main.clone.ClonePair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the matchings give the same classification and display the same matched methods, with and without the
+ * "classification_only" flag.
+ */
+public class ClassificationOnlyTest
+{
+    /**
+     * Creates a matcher, with or without the "classification_only" flag.
+     */
+    @FunctionalInterface
+    private interface IMatcherFactory
+    {
+        IMatcher create(boolean classification_only);
+    }
+
+    @Test
+    public void testFixture() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readFixture();
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+
+            M_compareMatchings(pairs, classification_only -> (method1, method2) ->
+                    new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, true, classification_only));
+            M_compareMatchings(pairs, classification_only -> (method1, method2) ->
+                    new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, classification_only));
+            M_compareMatchings(pairs, classification_only -> (method1, method2) ->
+                    new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, true, classification_only));
+            M_compareMatchings(pairs, classification_only -> (method1, method2) ->
+                    new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, false, classification_only));
+        }
+    }
+
+    /**
+     * Match each pair with and without the flag, and compare the classification and the output of both methods.
+     */
+    private static void M_compareMatchings(List<ClonePair> pairs, IMatcherFactory factory)
+    {
+        IMatcher full_matcher = factory.create(false);
+        IMatcher classification_matcher = factory.create(true);
+
+        for (ClonePair pair : pairs) {
+            String description = pair.getMethod1() + " / " + pair.getMethod2();
+
+            IMethodMatching expected;
+            try {
+                expected = full_matcher.match(pair.getMethod1(), pair.getMethod2());
+            } catch (MatchingException e) {
+                // the flag must not hide errors
+                assertNull(description, TestData.classify(classification_matcher, pair));
+                continue;
+            }
+
+            IMethodMatching actual;
+            try {
+                actual = classification_matcher.match(pair.getMethod1(), pair.getMethod2());
+            } catch (MatchingException e) {
+                throw new AssertionError(description, e);
+            }
+
+            assertEquals(description, expected.classify(), actual.classify());
+            assertEquals(description, M_writeMethod1(expected), M_writeMethod1(actual));
+            assertEquals(description, M_writeMethod2(expected), M_writeMethod2(actual));
+        }
+    }
+
+    /**
+     * The units and colors that are written for the first method.
+     */
+    private static List<String> M_writeMethod1(IMethodMatching matching)
+    {
+        List<String> retval = new ArrayList<>();
+        matching.writeMatchedMethod1((text, color) -> retval.add(text + " " + color));
+
+        return retval;
+    }
+
+    /**
+     * The units and colors that are written for the second method.
+     */
+    private static List<String> M_writeMethod2(IMethodMatching matching)
+    {
+        List<String> retval = new ArrayList<>();
+        matching.writeMatchedMethod2((text, color) -> retval.add(text + " " + color));
+
+        return retval;
+    }
+}
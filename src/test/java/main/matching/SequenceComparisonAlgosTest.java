@@ -0,0 +1,631 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.matching;
+
+import com.github.javaparser.ParseProblemException;
+import main.TestData;
+import main.clone.ClonePair;
+import main.clone.EnumCloneType;
+import main.method.Line;
+import main.method.Token;
+import main.method.TokenStream;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.*;
+/**
+ * Differential tests of the algorithms of {@link SequenceComparisonAlgos}. Each algorithm is compared with the original implementation
+ * of {@link SequenceComparisonAlgos#computeLCS}, which linked the cells of the LCS matrix, and which is kept here as a reference. The
+ * algorithms are applied to random token streams, and to the tokens and lines of the clone pairs.
+ */
+public class SequenceComparisonAlgosTest
+{
+    private static final int RANDOM_CASES = 20000;
+
+    // fewer cases with longer sequences, which are more expensive to compare
+    private static final int LARGE_RANDOM_CASES = 200;
+    private static final int LARGE_RANDOM_SIZE = 300;
+
+    // contents of the random tokens, with their category. The restricted keyword occurs both as keyword and as identifier
+    private static final String[] CONTENTS = {"a", "b", "c", "1", "2", "(", ")", "yield", "yield"};
+    private static final Token.EnumTokenCategory[] CATEGORIES = {
+            Token.EnumTokenCategory.IDENTIFIER, Token.EnumTokenCategory.IDENTIFIER, Token.EnumTokenCategory.IDENTIFIER,
+            Token.EnumTokenCategory.LITERAL, Token.EnumTokenCategory.LITERAL,
+            Token.EnumTokenCategory.OTHER, Token.EnumTokenCategory.OTHER,
+            Token.EnumTokenCategory.OTHER, Token.EnumTokenCategory.IDENTIFIER
+    };
+
+    private static final BiFunction<Token, Token, EnumCloneType> TOKEN_PREDICATE = (token1, token2) -> Token.compareSymbols(token1.getSymbol(), token2.getSymbol());
+    private static final BiFunction<Line, Line, EnumCloneType> LINE_PREDICATE = LineMatching::M_compareLines;
+
+    /**
+     * Checks the result of an algorithm for two token streams, given the LCS of the reference implementation.
+     */
+    @FunctionalInterface
+    private interface ITokenCheck
+    {
+        void check(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected);
+    }
+
+    /**
+     * Checks the result of an algorithm for two lists of lines, given the LCS of the reference implementation.
+     */
+    @FunctionalInterface
+    private interface ILineCheck
+    {
+        void check(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected);
+    }
+
+    /**
+     * {@link RollingRowLCS} gives exactly the matches of the reference implementation.
+     */
+    @Test
+    public void testRollingRowLCS() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkRollingRowTokens, SequenceComparisonAlgosTest::M_checkRollingRowLines);
+    }
+
+    /**
+     * {@link BitParallelLCS} gives exactly the matches of the reference implementation. It is only available for token streams.
+     */
+    @Test
+    public void testBitParallelLCS() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkBitParallelTokens, null);
+    }
+
+    /**
+     * {@link HirschbergLCS} gives an LCS, which may differ from that of the reference implementation.
+     */
+    @Test
+    public void testHirschbergLCS() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkHirschbergTokens, SequenceComparisonAlgosTest::M_checkHirschbergLines);
+    }
+
+    /**
+     * {@link MyersLCS} gives an LCS, which may differ from that of the reference implementation.
+     */
+    @Test
+    public void testMyersLCS() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkMyersTokens, SequenceComparisonAlgosTest::M_checkMyersLines);
+    }
+
+    /**
+     * Sequences that differ in many elements exceed the memory budget of {@link MyersLCS}, which then falls back to {@link RollingRowLCS}.
+     * The result is therefore identical to that of {@link SequenceComparisonAlgos#computeLCS}.
+     */
+    @Test
+    public void testMyersFallback()
+    {
+        // 100 unmatched tokens in each sequence give 200 edits, followed by a common tail
+        int[] symbols_1 = new int[120];
+        int[] symbols_2 = new int[120];
+        for (int i = 0; i < 120; i++) {
+            int tail_idx = i % 5;
+            symbols_1[i] = i < 100 ? Token.toSymbol("(", Token.EnumTokenCategory.OTHER) : Token.toSymbol(CONTENTS[tail_idx], CATEGORIES[tail_idx]);
+            symbols_2[i] = i < 100 ? Token.toSymbol(")", Token.EnumTokenCategory.OTHER) : Token.toSymbol(CONTENTS[tail_idx], CATEGORIES[tail_idx]);
+        }
+        TokenStream seq1 = new TokenStream(symbols_1);
+        TokenStream seq2 = new TokenStream(symbols_2);
+
+        List<Token> tokens_1 = seq1.toTokenList();
+        List<Token> tokens_2 = seq2.toTokenList();
+
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected = SequenceComparisonAlgos.computeLCS(tokens_1, tokens_2, TOKEN_PREDICATE);
+        assertEquals(20, expected.size());
+
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeMyersLCS(tokens_1, tokens_2, TOKEN_PREDICATE));
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeTokenStreamMyersLCS(seq1, seq2));
+    }
+
+    /**
+     * Matching the common prefix and suffix before the LCS gives an LCS, which may differ from that of the reference implementation.
+     */
+    @Test
+    public void testStripAffixes() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkStripAffixesTokens, SequenceComparisonAlgosTest::M_checkStripAffixesLines);
+    }
+
+    /**
+     * {@link HuntSzymanskiLCS} gives an LCS if elements that match have equal keys, which is the case for the blinded keys.
+     */
+    @Test
+    public void testHuntSzymanskiLCS() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkHuntSzymanskiTokens, SequenceComparisonAlgosTest::M_checkHuntSzymanskiLines);
+    }
+
+    /**
+     * {@link PatienceDiff} gives a common subsequence that is at most as long as the LCS.
+     */
+    @Test
+    public void testPatienceDiff() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkPatienceTokens, SequenceComparisonAlgosTest::M_checkPatienceLines);
+    }
+
+    /**
+     * {@link IndexedNaiveMatch} may leave out matches, but gives each element the same strictest match as {@link SequenceComparisonAlgos#computeNaiveMatch}.
+     */
+    @Test
+    public void testIndexedNaiveMatch() throws IOException
+    {
+        M_checkAll(SequenceComparisonAlgosTest::M_checkIndexedNaiveTokens, SequenceComparisonAlgosTest::M_checkIndexedNaiveLines);
+    }
+
+    @Test
+    public void testLabelledIndex() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readLabelledIndex();
+
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkRollingRowTokens, SequenceComparisonAlgosTest::M_checkRollingRowLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkBitParallelTokens, null);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkHirschbergTokens, SequenceComparisonAlgosTest::M_checkHirschbergLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkMyersTokens, SequenceComparisonAlgosTest::M_checkMyersLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkStripAffixesTokens, SequenceComparisonAlgosTest::M_checkStripAffixesLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkHuntSzymanskiTokens, SequenceComparisonAlgosTest::M_checkHuntSzymanskiLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkPatienceTokens, SequenceComparisonAlgosTest::M_checkPatienceLines);
+        M_checkPairs(pairs, SequenceComparisonAlgosTest::M_checkIndexedNaiveTokens, SequenceComparisonAlgosTest::M_checkIndexedNaiveLines);
+    }
+
+    /**
+     * The column that the bounded engines inspect after each row must give the maximum of L(i, j) + min(remaining rows, remaining columns)
+     * over the whole row.
+     */
+    @Test
+    public void testBoundColumn()
+    {
+        Random random = new Random(16);
+
+        for (int k = 0; k < RANDOM_CASES; k++) {
+            int size_1 = 1 + random.nextInt(20);
+            int size_2 = 1 + random.nextInt(20);
+            int alphabet = 1 + random.nextInt(4);
+            int[] seq1 = random.ints(size_1, 0, alphabet).toArray();
+            int[] seq2 = random.ints(size_2, 0, alphabet).toArray();
+
+            // lengths[i][j] is the LCS length of the prefixes of length i and j
+            int[][] lengths = new int[size_1 + 1][size_2 + 1];
+            for (int i = 1; i <= size_1; i++) {
+                for (int j = 1; j <= size_2; j++) {
+                    lengths[i][j] = seq1[i - 1] == seq2[j - 1] ? lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+                }
+
+                int remaining_rows = size_1 - i;
+                int expected = 0;
+                for (int j = 0; j <= size_2; j++) {
+                    expected = Math.max(expected, lengths[i][j] + Math.min(remaining_rows, size_2 - j));
+                }
+
+                int column = RollingRowLCS.M_boundColumn(size_2, remaining_rows);
+                assertEquals(expected, lengths[i][column] + Math.min(remaining_rows, size_2 - column));
+                assertTrue(lengths[size_1][size_2] <= expected);
+            }
+        }
+    }
+
+    /**
+     * The bounded engines must abandon exactly the sequences whose LCS is shorter than the minimum, and otherwise return the same matches.
+     */
+    @Test
+    public void testBoundedLCSRandomTokens()
+    {
+        Random random = new Random(15);
+        int abandoned = 0;
+
+        for (int k = 0; k < RANDOM_CASES; k++) {
+            TokenStream seq1 = M_randomStream(random, random.nextInt(30), 1 + random.nextInt(CONTENTS.length));
+            TokenStream seq2 = M_randomStream(random, random.nextInt(30), 1 + random.nextInt(CONTENTS.length));
+            int min_matches = random.nextInt(20);
+
+            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected = SequenceComparisonAlgos.computeTokenStreamLCS(seq1, seq2);
+            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> rolling_row = RollingRowLCS.computeWithComparator(seq1.size(), seq2.size(), IElementComparator.forTokenStreams(seq1, seq2), min_matches);
+            List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> bit_parallel = BitParallelLCS.compute(seq1, seq2, min_matches);
+
+            if(expected.size() < min_matches) {
+                assertNull(rolling_row);
+                assertNull(bit_parallel);
+
+                // not rejected by the lengths of the sequences, so the computation is abandoned after some rows
+                if(Math.min(seq1.size(), seq2.size()) >= min_matches) {
+                    abandoned++;
+                }
+            } else {
+                M_assertMatchesEqual(expected, rolling_row);
+                M_assertMatchesEqual(expected, bit_parallel);
+            }
+        }
+
+        assertTrue(abandoned > 0);
+    }
+
+    /**
+     * The bounded LCS must give the same classification as the unbounded LCS, for each granularity and threshold.
+     */
+    @Test
+    public void testBoundedLCSFixture() throws IOException
+    {
+        List<ClonePair> pairs = TestData.readFixture();
+        int abandoned = 0;
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+            int min_matches = IMethodMatching.getMinimumMatchCount(min_size, min_density);
+
+            SequenceComparisonAlgos.IMatchingAlgo<Line, EnumCloneType> bounded_line_algo = SequenceComparisonAlgos.boundedLCS(min_size, min_density);
+            SequenceComparisonAlgos.ITokenStreamMatchingAlgo bounded_token_algo = SequenceComparisonAlgos.boundedTokenStreamLCS(min_size, min_density);
+
+            TestData.assertVerdictsEqual(pairs,
+                    (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, true),
+                    (method1, method2) -> new LineMatching(method1, method2, bounded_line_algo, min_size, min_density, false, true, true));
+            TestData.assertVerdictsEqual(pairs,
+                    (method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density),
+                    (method1, method2) -> new TokenMatching(method1, method2, bounded_token_algo, min_size, min_density, true));
+            TestData.assertVerdictsEqual(pairs,
+                    (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, true),
+                    (method1, method2) -> new TraversalTreeMatching(method1, method2, bounded_token_algo, min_size, min_density, true, true));
+            TestData.assertVerdictsEqual(pairs,
+                    (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, false),
+                    (method1, method2) -> new TraversalTreeMatching(method1, method2, bounded_token_algo, min_size, min_density, false, true));
+
+            // count the pairs for which the computation is abandoned
+            for (ClonePair pair : pairs) {
+                try {
+                    TokenStream tokens_1 = pair.getMethod1().getTokenStream();
+                    TokenStream tokens_2 = pair.getMethod2().getTokenStream();
+
+                    if(SequenceComparisonAlgos.computeTokenStreamLCS(tokens_1, tokens_2).size() < min_matches) {
+                        assertTrue(bounded_token_algo.compute(tokens_1, tokens_2).isEmpty());
+                        abandoned++;
+                    }
+                } catch (ParseProblemException | IllegalStateException e) {
+                    // the matchers report this pair as an error
+                }
+            }
+        }
+
+        // the thresholds must exercise the early exit
+        assertTrue(abandoned > 0);
+    }
+
+    /**
+     * Apply the checks to random token streams, and to the tokens and the lines of the clone pairs of the fixture.
+     *
+     * @param line_check The check for lines, or null if the algorithm is not available for lines.
+     */
+    private static void M_checkAll(ITokenCheck token_check, ILineCheck line_check) throws IOException
+    {
+        Random random = new Random(12);
+
+        for (int k = 0; k < RANDOM_CASES; k++) {
+            // small alphabets and lengths give many ties, which test the traceback rules
+            TokenStream seq1 = M_randomStream(random, random.nextInt(30), 1 + random.nextInt(CONTENTS.length));
+            TokenStream seq2 = M_randomStream(random, random.nextInt(30), 1 + random.nextInt(CONTENTS.length));
+
+            M_checkTokens(seq1, seq2, token_check);
+        }
+
+        for (int k = 0; k < LARGE_RANDOM_CASES; k++) {
+            TokenStream seq1 = M_randomStream(random, random.nextInt(LARGE_RANDOM_SIZE), 1 + random.nextInt(CONTENTS.length));
+            TokenStream seq2 = M_randomStream(random, random.nextInt(LARGE_RANDOM_SIZE), 1 + random.nextInt(CONTENTS.length));
+
+            M_checkTokens(seq1, seq2, token_check);
+        }
+
+        M_checkPairs(TestData.readFixture(), token_check, line_check);
+    }
+
+    /**
+     * Apply the checks to the tokens and the lines of each clone pair that can be parsed.
+     *
+     * @param line_check The check for lines, or null if the algorithm is not available for lines.
+     */
+    private static void M_checkPairs(List<ClonePair> pairs, ITokenCheck token_check, ILineCheck line_check) throws IOException
+    {
+        for (ClonePair pair : pairs) {
+            try {
+                M_checkTokens(pair.getMethod1().getTokenStream(), pair.getMethod2().getTokenStream(), token_check);
+
+                if(line_check != null) {
+                    List<Line> lines_1 = pair.getMethod1().getLines();
+                    List<Line> lines_2 = pair.getMethod2().getLines();
+                    line_check.check(lines_1, lines_2, M_referenceLCS(lines_1, lines_2, LINE_PREDICATE));
+                }
+            } catch (ParseProblemException e) {
+                // the matchers report this pair as an error
+            }
+        }
+    }
+
+    /**
+     * Apply the check to two token streams.
+     */
+    private static void M_checkTokens(TokenStream seq1, TokenStream seq2, ITokenCheck token_check)
+    {
+        token_check.check(seq1, seq2, M_referenceLCS(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+    }
+
+    private static void M_checkRollingRowTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeLCS(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeTokenStreamLCS(seq1, seq2));
+    }
+
+    private static void M_checkRollingRowLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeLCS(lines_1, lines_2, LINE_PREDICATE));
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeLCS(lines_1.size(), lines_2.size(), IElementComparator.forLines(lines_1, lines_2)));
+    }
+
+    private static void M_checkBitParallelTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertMatchesEqual(expected, SequenceComparisonAlgos.computeTokenStreamBitParallelLCS(seq1, seq2));
+    }
+
+    private static void M_checkHirschbergTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.computeHirschbergLCS(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.computeTokenStreamHirschbergLCS(seq1, seq2));
+    }
+
+    private static void M_checkHirschbergLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertLineLCS(lines_1, lines_2, expected, SequenceComparisonAlgos.computeHirschbergLCS(lines_1, lines_2, LINE_PREDICATE));
+    }
+
+    private static void M_checkMyersTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.computeMyersLCS(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.computeTokenStreamMyersLCS(seq1, seq2));
+    }
+
+    private static void M_checkMyersLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertLineLCS(lines_1, lines_2, expected, SequenceComparisonAlgos.computeMyersLCS(lines_1, lines_2, LINE_PREDICATE));
+    }
+
+    private static void M_checkStripAffixesTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.<Token, EnumCloneType>stripAffixes(SequenceComparisonAlgos::computeLCS).compute(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.stripAffixes(SequenceComparisonAlgos::computeTokenStreamLCS).compute(seq1, seq2));
+    }
+
+    private static void M_checkStripAffixesLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertLineLCS(lines_1, lines_2, expected, SequenceComparisonAlgos.<Line, EnumCloneType>stripAffixes(SequenceComparisonAlgos::computeLCS).compute(lines_1, lines_2, LINE_PREDICATE));
+    }
+
+    private static void M_checkHuntSzymanskiTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertTokenLCS(seq1, seq2, expected, SequenceComparisonAlgos.<Token, EnumCloneType>huntSzymanskiLCS(Token::getBlindedKey).compute(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE));
+    }
+
+    private static void M_checkHuntSzymanskiLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertLineLCS(lines_1, lines_2, expected, SequenceComparisonAlgos.<Line, EnumCloneType>huntSzymanskiLCS(Line::getBlindedFingerprint).compute(lines_1, lines_2, LINE_PREDICATE));
+    }
+
+    private static void M_checkPatienceTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual = SequenceComparisonAlgos.<Token, EnumCloneType>patienceDiff(Token::getBlindedKey).compute(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE);
+        assertTrue(M_assertCommonSubsequence(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE, actual) <= expected.size());
+    }
+
+    private static void M_checkPatienceLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual = SequenceComparisonAlgos.<Line, EnumCloneType>patienceDiff(Line::getBlindedFingerprint).compute(lines_1, lines_2, LINE_PREDICATE);
+        assertTrue(M_assertCommonSubsequence(lines_1, lines_2, LINE_PREDICATE, actual) <= expected.size());
+    }
+
+    private static void M_checkIndexedNaiveTokens(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        List<Token> tokens_1 = seq1.toTokenList();
+        List<Token> tokens_2 = seq2.toTokenList();
+        List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> naive = SequenceComparisonAlgos.computeNaiveMatch(tokens_1, tokens_2, TOKEN_PREDICATE);
+
+        M_assertStrictestMatchesEqual(seq1.size(), seq2.size(), naive, SequenceComparisonAlgos.computeTokenStreamNaiveMatch(seq1, seq2));
+        M_assertStrictestMatchesEqual(seq1.size(), seq2.size(), naive, SequenceComparisonAlgos.tokenStreamIndexedNaiveMatch(0).compute(seq1, seq2));
+        M_assertStrictestMatchesEqual(seq1.size(), seq2.size(), naive, SequenceComparisonAlgos.<Token>indexedNaiveMatch(Token::getContentId, Token::getBlindedKey, 0).compute(tokens_1, tokens_2, TOKEN_PREDICATE));
+    }
+
+    private static void M_checkIndexedNaiveLines(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected)
+    {
+        M_assertStrictestMatchesEqual(lines_1.size(), lines_2.size(), SequenceComparisonAlgos.computeNaiveMatch(lines_1, lines_2, LINE_PREDICATE),
+                SequenceComparisonAlgos.<Line>indexedNaiveMatch(Line::getExactFingerprint, Line::getBlindedFingerprint, 0).compute(lines_1, lines_2, LINE_PREDICATE));
+    }
+
+    /**
+     * Check that the matches form a common subsequence of the token streams, with the same length as the LCS.
+     */
+    private static void M_assertTokenLCS(TokenStream seq1, TokenStream seq2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual)
+    {
+        assertEquals(expected.size(), M_assertCommonSubsequence(seq1.toTokenList(), seq2.toTokenList(), TOKEN_PREDICATE, actual));
+    }
+
+    /**
+     * Check that the matches form a common subsequence of the lines, with the same length as the LCS.
+     */
+    private static void M_assertLineLCS(List<Line> lines_1, List<Line> lines_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual)
+    {
+        assertEquals(expected.size(), M_assertCommonSubsequence(lines_1, lines_2, LINE_PREDICATE, actual));
+    }
+
+    /**
+     * Check that the matches form a common subsequence: the indices increase strictly in both sequences, and the type of each match
+     * is the result of the predicate for its elements.
+     *
+     * @return The length of the common subsequence.
+     */
+    private static <ElemType> int M_assertCommonSubsequence(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EnumCloneType> eq_predicate, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches)
+    {
+        int previous_1 = -1;
+        int previous_2 = -1;
+
+        for (SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType> match : matches) {
+            assertTrue(match.idx_1 > previous_1 && match.idx_1 < seq1.size());
+            assertTrue(match.idx_2 > previous_2 && match.idx_2 < seq2.size());
+            assertNotNull(match.eq_type);
+            assertEquals(eq_predicate.apply(seq1.get(match.idx_1), seq2.get(match.idx_2)), match.eq_type);
+
+            previous_1 = match.idx_1;
+            previous_2 = match.idx_2;
+        }
+
+        return matches.size();
+    }
+
+    /**
+     * Check that each element of both sequences has the same strictest match, which is what the matchers use.
+     */
+    private static void M_assertStrictestMatchesEqual(int size_1, int size_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual)
+    {
+        EnumCloneType[][] expected_types = M_strictestMatches(size_1, size_2, expected);
+        EnumCloneType[][] actual_types = M_strictestMatches(size_1, size_2, actual);
+
+        assertEquals(Arrays.asList(expected_types[0]), Arrays.asList(actual_types[0]));
+        assertEquals(Arrays.asList(expected_types[1]), Arrays.asList(actual_types[1]));
+    }
+
+    /**
+     * The strictest match of each element of the first sequence, and of each element of the second sequence.
+     */
+    private static EnumCloneType[][] M_strictestMatches(int size_1, int size_2, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches)
+    {
+        EnumCloneType[][] retval = new EnumCloneType[][] { new EnumCloneType[size_1], new EnumCloneType[size_2] };
+
+        for (SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType> match : matches) {
+            assertNotNull(match.eq_type);
+            retval[0][match.idx_1] = EnumCloneType.max(retval[0][match.idx_1], match.eq_type);
+            retval[1][match.idx_2] = EnumCloneType.max(retval[1][match.idx_2], match.eq_type);
+        }
+
+        return retval;
+    }
+
+    private static void M_assertMatchesEqual(List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> expected, List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> actual)
+    {
+        assertEquals(M_toString(expected), M_toString(actual));
+    }
+
+    private static String M_toString(List<SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType>> matches)
+    {
+        StringBuilder retval = new StringBuilder();
+        for (SequenceComparisonAlgos.SequenceElementMatch<EnumCloneType> match : matches) {
+            retval.append(match.idx_1).append('-').append(match.idx_2).append(':').append(match.eq_type).append(' ');
+        }
+
+        return retval.toString();
+    }
+
+    /**
+     * A random token stream, whose tokens are taken from the first "alphabet_size" entries of {@link SequenceComparisonAlgosTest#CONTENTS}.
+     */
+    private static TokenStream M_randomStream(Random random, int size, int alphabet_size)
+    {
+        int[] symbols = new int[size];
+        for (int i = 0; i < size; i++) {
+            int idx = random.nextInt(alphabet_size);
+            symbols[i] = Token.toSymbol(CONTENTS[idx], CATEGORIES[idx]);
+        }
+
+        return new TokenStream(symbols);
+    }
+
+    /**
+     * The original implementation of {@link SequenceComparisonAlgos#computeLCS}: each cell of the LCS matrix links to the cell that
+     * precedes its last match.
+     */
+    private static <ElemType, EqType> List<SequenceComparisonAlgos.SequenceElementMatch<EqType>> M_referenceLCS(List<ElemType> seq1, List<ElemType> seq2, BiFunction<ElemType, ElemType, EqType> eq_predicate)
+    {
+        if(seq1.size() == 0 || seq2.size() == 0) {
+            return List.of();
+        }
+
+        LCSCell<EqType>[][] matrix = new LCSCell[seq1.size()][seq2.size()];
+
+        for (int i = 0; i < seq1.size(); i++) {
+            for (int j = 0; j < seq2.size(); j++) {
+                EqType eq = eq_predicate.apply(seq1.get(i), seq2.get(j));
+
+                if(eq != null) {
+                    LCSCell<EqType> prev = (i == 0 || j == 0) ? null : matrix[i - 1][j - 1];
+                    matrix[i][j] = new LCSCell<>(new SequenceComparisonAlgos.SequenceElementMatch<>(i, j, eq), prev);
+                } else {
+                    LCSCell<EqType> top = (i == 0) ? null : matrix[i - 1][j];
+                    LCSCell<EqType> left = (j == 0) ? null : matrix[i][j - 1];
+                    matrix[i][j] = LCSCell.max(top, left);
+                }
+            }
+        }
+
+        LCSCell<EqType> last = matrix[seq1.size() - 1][seq2.size() - 1];
+        return last == null ? List.of() : last.getLCS();
+    }
+
+    /**
+     * A cell of the LCS matrix of {@link SequenceComparisonAlgosTest#M_referenceLCS}.
+     */
+    private static class LCSCell<T>
+    {
+        private final LCSCell<T> m_prev;
+        private final SequenceComparisonAlgos.SequenceElementMatch<T> m_elem;
+        private final int m_length;
+
+        LCSCell(SequenceComparisonAlgos.SequenceElementMatch<T> new_match, LCSCell<T> prev)
+        {
+            m_prev = prev;
+            m_elem = new_match;
+            m_length = prev == null ? 1 : prev.m_length + 1;
+        }
+
+        static <X> LCSCell<X> max(LCSCell<X> a, LCSCell<X> b)
+        {
+            if(a == null) {
+                return b;
+            }
+
+            if(b == null) {
+                return a;
+            }
+
+            return a.m_length >= b.m_length ? a : b;
+        }
+
+        List<SequenceComparisonAlgos.SequenceElementMatch<T>> getLCS()
+        {
+            List<SequenceComparisonAlgos.SequenceElementMatch<T>> retval = new ArrayList<>();
+            for (LCSCell<T> cur = this; cur != null; cur = cur.m_prev) {
+                retval.add(cur.m_elem);
+            }
+
+            Collections.reverse(retval);
+            return retval;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package main.matching;
+
+import main.TestData;
+import main.clone.ClonePair;
+import main.method.Method;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link UpperBoundFilter} never changes the classification of the matcher that it wraps.
+ */
+public class UpperBoundFilterTest
+{
+    @Test
+    public void testFixture() throws IOException
+    {
+        M_compareVerdicts(TestData.readFixture());
+    }
+
+    @Test
+    public void testLabelledIndex() throws IOException
+    {
+        long rejected = M_compareVerdicts(TestData.readLabelledIndex());
+
+        // the bounds must be tight enough to be useful
+        assertTrue(rejected > 0);
+    }
+
+    /**
+     * Classify each clone pair with every granularity and threshold, both with and without the filter.
+     *
+     * @return The number of pairs that have been rejected by the filters.
+     */
+    private static long M_compareVerdicts(List<ClonePair> pairs)
+    {
+        long retval = 0;
+
+        for (int k = 0; k < TestData.MIN_SIZES.length; k++) {
+            int min_size = TestData.MIN_SIZES[k];
+            float min_density = TestData.MIN_DENSITIES[k];
+
+            IMatcher line_matcher = (method1, method2) -> new LineMatching(method1, method2, SequenceComparisonAlgos.LINE_LCS, min_size, min_density, false, true);
+            IMatcher token_matcher = (method1, method2) -> new TokenMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density);
+            IMatcher preorder_matcher = (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, true);
+            IMatcher postorder_matcher = (method1, method2) -> new TraversalTreeMatching(method1, method2, SequenceComparisonAlgos::computeTokenStreamLCS, min_size, min_density, false);
+
+            retval += M_compareVerdicts(pairs, line_matcher, UpperBoundFilter.forLines(line_matcher, min_size, min_density));
+            retval += M_compareVerdicts(pairs, token_matcher, UpperBoundFilter.forTokens(token_matcher, Method::getTokens, min_size, min_density));
+            retval += M_compareVerdicts(pairs, preorder_matcher, UpperBoundFilter.forTokens(preorder_matcher, method -> method.getLeafTraversal(true), min_size, min_density));
+            retval += M_compareVerdicts(pairs, postorder_matcher, UpperBoundFilter.forTokens(postorder_matcher, method -> method.getLeafTraversal(false), min_size, min_density));
+        }
+
+        return retval;
+    }
+
+    private static long M_compareVerdicts(List<ClonePair> pairs, IMatcher matcher, UpperBoundFilter<?> filter)
+    {
+        TestData.assertVerdictsEqual(pairs, matcher, filter);
+
+        return filter.getLengthRejectedCount() + filter.getHistogramRejectedCount() + filter.getQgramRejectedCount();
+    }
+}
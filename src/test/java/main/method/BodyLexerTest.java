@@ -0,0 +1,254 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.Node;
+import main.TestData;
+import main.clone.ClonePair;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Differential test of {@link BodyLexer}: the tokens it produces must be identical to the tokens of the AST.
+ */
+public class BodyLexerTest
+{
+    @Test
+    public void testFixture() throws IOException
+    {
+        int tokenized = M_compareMethods(TestData.readFixture());
+
+        // the lexer must not decline every method of the fixture
+        assertTrue(tokenized > 0);
+    }
+
+    @Test
+    public void testLabelledIndex() throws IOException
+    {
+        M_compareMethods(TestData.readLabelledIndex());
+    }
+
+    @Test
+    public void testFixtureLines() throws IOException
+    {
+        int tokenized = M_compareLines(TestData.readFixture());
+
+        // the lexer must not decline every method of the fixture
+        assertTrue(tokenized > 0);
+    }
+
+    @Test
+    public void testLabelledIndexLines() throws IOException
+    {
+        M_compareLines(TestData.readLabelledIndex());
+    }
+
+    /**
+     * The lexer accepts these bodies, so a method must not be tokenized by it unless this has been enabled.
+     */
+    @Test
+    public void testInvalidBodies() throws IOException
+    {
+        File path = TestData.getResource("fixture/invalid.txt");
+
+        for (int line = 1; line <= 4; line++) {
+            Method method = new Method(path, line, line);
+            assertNotNull(BodyLexer.tokenizeBody(method.getText()));
+
+            RuntimeException e = assertThrows(RuntimeException.class, method::getTokenStream);
+            assertTrue(method.toString(), e instanceof ParseProblemException || e instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * If enabled, methods are tokenized without parsing them, and the tokens are equal to those of the AST.
+     */
+    @Test
+    public void testLexerTokenization() throws IOException
+    {
+        List<ClonePair> parsed_pairs = TestData.readFixture();
+        List<ClonePair> lexed_pairs = TestData.readFixture();
+
+        Method.setLexerTokenization(true);
+        try {
+            for (int i = 0; i < parsed_pairs.size(); i++) {
+                for (int k = 0; k < 2; k++) {
+                    Method parsed = k == 0 ? parsed_pairs.get(i).getMethod1() : parsed_pairs.get(i).getMethod2();
+                    Method lexed = k == 0 ? lexed_pairs.get(i).getMethod1() : lexed_pairs.get(i).getMethod2();
+
+                    // the AST is held, so that the tokens are taken from it
+                    Node body = parsed.getMethodBody(true);
+                    assertNotNull(body);
+
+                    assertArrayEquals(lexed.toString(), M_getSymbols(parsed.getTokenStream()), M_getSymbols(lexed.getTokenStream()));
+                }
+            }
+
+            // the syntax errors are not detected, which shows that the methods are not parsed
+            File path = TestData.getResource("fixture/invalid.txt");
+            for (int line = 1; line <= 4; line++) {
+                assertNotNull(new Method(path, line, line).getTokenStream());
+            }
+        } finally {
+            Method.setLexerTokenization(false);
+        }
+    }
+
+    /**
+     * Compare the tokens of the lexer with the tokens of the AST, for each method of the specified clone pairs that can be parsed.
+     *
+     * @return The number of methods that were tokenized by the lexer.
+     */
+    private static int M_compareMethods(List<ClonePair> pairs) throws IOException
+    {
+        int retval = 0;
+
+        for (Method method : M_getMethods(pairs)) {
+            // the AST is held, so that the tokens are taken from it
+            Node body;
+            try {
+                body = method.getMethodBody(true);
+            } catch (ParseProblemException | IllegalStateException e) {
+                continue;
+            }
+            TokenStream expected = method.getTokenStream();
+            assertNotNull(body);
+
+            TokenStream actual = BodyLexer.tokenizeBody(method.getText());
+
+            // the lexer declines methods that it cannot tokenize reliably
+            if(actual == null) {
+                continue;
+            }
+
+            assertArrayEquals(method.toString(), M_getSymbols(expected), M_getSymbols(actual));
+            retval++;
+        }
+
+        return retval;
+    }
+
+    /**
+     * Compare the tokens of each line of the lexer with the tokens of each line of the parsed pretty-printed body, for each method of the
+     * specified clone pairs that can be parsed.
+     *
+     * @return The number of methods whose lines were tokenized by the lexer.
+     */
+    private static int M_compareLines(List<ClonePair> pairs) throws IOException
+    {
+        int retval = 0;
+
+        for (Method method : M_getMethods(pairs)) {
+            List<Line> lines;
+            try {
+                lines = method.getLines();
+            } catch (ParseProblemException | IllegalStateException e) {
+                continue;
+            }
+
+            String pretty_printed = lines.stream().map(Line::getLineContent).collect(Collectors.joining("\n"));
+            List<List<Token>> actual = BodyLexer.tokenizeLines(pretty_printed);
+
+            // the lexer declines lines that it cannot tokenize reliably
+            if(actual == null) {
+                continue;
+            }
+
+            List<List<Token>> expected = M_parseLines(pretty_printed);
+            assertEquals(method.toString(), expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(method.toString(), M_getSymbols(expected.get(i)), M_getSymbols(actual.get(i)));
+            }
+
+            for (int i = 0; i < lines.size(); i++) {
+                assertArrayEquals(method.toString(), M_getSymbols(lines.get(i).getTokens()), M_getSymbols(actual.get(i)));
+            }
+
+            retval++;
+        }
+
+        return retval;
+    }
+
+    /**
+     * Tokenize the specified source line by line using the parser, as the lines were computed originally.
+     */
+    private static List<List<Token>> M_parseLines(String text)
+    {
+        List<List<Token>> retval = new ArrayList<>();
+        retval.add(new ArrayList<>());
+
+        for (JavaToken token : StaticJavaParser.parseBodyDeclaration(text).getTokenRange().get()) {
+            if(token.getCategory() == JavaToken.Category.EOL) {
+                retval.add(new ArrayList<>());
+            } else if(token.getCategory() != JavaToken.Category.WHITESPACE_NO_EOL && token.getCategory() != JavaToken.Category.COMMENT) {
+                retval.get(retval.size() - 1).add(new Token(token));
+            }
+        }
+
+        return retval;
+    }
+
+    /**
+     * The distinct methods of the specified clone pairs.
+     */
+    private static Set<Method> M_getMethods(List<ClonePair> pairs)
+    {
+        Set<Method> retval = new LinkedHashSet<>();
+        for (ClonePair pair : pairs) {
+            retval.add(pair.getMethod1());
+            retval.add(pair.getMethod2());
+        }
+
+        return retval;
+    }
+
+    /**
+     * The symbols of the specified tokens.
+     */
+    private static int[] M_getSymbols(List<Token> tokens)
+    {
+        return tokens.stream().mapToInt(Token::getSymbol).toArray();
+    }
+
+    /**
+     * The symbols of the specified stream.
+     */
+    private static int[] M_getSymbols(TokenStream stream)
+    {
+        int[] retval = new int[stream.size()];
+        for (int i = 0; i < stream.size(); i++) {
+            retval[i] = stream.getSymbol(i);
+        }
+
+        return retval;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *   Copyright (C) 2020  Kasper Engelen
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package main.method;
+
+import main.TestData;
+import main.clone.ClonePair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the representations of a method are the same, whether it is parsed separately or retrieved from its parsed source file.
+ */
+public class CompilationUnitGroupTest
+{
+    @Test
+    public void testFixture() throws IOException
+    {
+        List<ClonePair> separate_pairs = TestData.readFixture(false);
+        List<ClonePair> grouped_pairs = TestData.readFixture(true);
+
+        assertEquals(separate_pairs.size(), grouped_pairs.size());
+
+        int from_javadoc = 0;
+        int fallback = 0;
+
+        for (int i = 0; i < separate_pairs.size(); i++) {
+            for (int k = 0; k < 2; k++) {
+                Method separate = k == 0 ? separate_pairs.get(i).getMethod1() : separate_pairs.get(i).getMethod2();
+                Method grouped = k == 0 ? grouped_pairs.get(i).getMethod1() : grouped_pairs.get(i).getMethod2();
+
+                assertEquals(separate.toString(), grouped.toString());
+                M_assertEqualStreams(grouped, separate.getTokenStream(), grouped.getTokenStream());
+                M_assertEqualStreams(grouped, separate.getLeafTraversalStream(true), grouped.getLeafTraversalStream(true));
+                M_assertEqualStreams(grouped, separate.getLeafTraversalStream(false), grouped.getLeafTraversalStream(false));
+
+                List<Line> separate_lines = separate.getLines();
+                List<Line> grouped_lines = grouped.getLines();
+                assertEquals(grouped.toString(), separate_lines.size(), grouped_lines.size());
+                for (int j = 0; j < separate_lines.size(); j++) {
+                    assertEquals(grouped.toString(), separate_lines.get(j).getLineContent(), grouped_lines.get(j).getLineContent());
+                    assertTrue(grouped.toString(), separate_lines.get(j).hasEqualSymbols(grouped_lines.get(j)));
+                }
+
+                // a declaration that is taken from the compilation unit has a parent, a separately parsed declaration does not
+                boolean has_parent = grouped.getMethodBody(false).getParentNode().isPresent();
+
+                // a range that starts at the Javadoc of a method corresponds with the declaration, a range that starts at an empty line does not
+                if(grouped.getText().trim().startsWith("/**")) {
+                    assertTrue(grouped.toString(), has_parent);
+                    from_javadoc++;
+                } else if(grouped.getText().startsWith("\n")) {
+                    assertFalse(grouped.toString(), has_parent);
+                    fallback++;
+                }
+            }
+        }
+
+        assertTrue(from_javadoc > 0);
+        assertTrue(fallback > 0);
+    }
+
+    /**
+     * Check that two streams contain the same symbols.
+     */
+    private static void M_assertEqualStreams(Method method, TokenStream expected, TokenStream actual)
+    {
+        assertEquals(method.toString(), expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(method.toString(), expected.getSymbol(i), actual.getSymbol(i));
+        }
+    }
+}
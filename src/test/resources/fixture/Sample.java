@@ -0,0 +1,136 @@
+package fixture;
+
+import java.util.*;
+
+/**
+ * Methods that are compared by the tests, see index.xml.
+ */
+public class Sample
+{
+    private String name;
+    private int size;
+    private boolean done;
+
+    public int sum(int[] values)
+    {
+        int total = 0;
+        for (int i = 0; i < values.length; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    public int sumFormatted(int[] values) {
+        // add all values
+        int total = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            total += values[i];
+        }
+
+        return total;
+    }
+
+    public int sumRenamed(int[] numbers)
+    {
+        int result = 1;
+        for (int k = 0; k < numbers.length; k++) {
+            result += numbers[k];
+        }
+        return result;
+    }
+
+    public int sumLogged(int[] values)
+    {
+        int total = 0;
+        System.out.println("start");
+        for (int i = 0; i < values.length; i++) {
+            total += values[i];
+            System.out.println(total);
+        }
+        return total;
+    }
+
+    public Map<String, List<Integer>> countWords(List<String> words)
+    {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            positions.computeIfAbsent(words.get(i), key -> new ArrayList<>()).add(i);
+        }
+        return positions;
+    }
+
+    public Map<String, List<Integer>> countTokens(List<String> tokens)
+    {
+        Map<String, List<Integer>> indices = new TreeMap<>();
+        for (int j = 0; j < tokens.size(); j++) {
+            indices.computeIfAbsent(tokens.get(j), k -> new LinkedList<>()).add(j);
+        }
+        return indices;
+    }
+
+    public long shifts(long value, int amount)
+    {
+        long a = value >> amount;
+        long b = value >>> amount;
+        long c = value << amount;
+        return a > b ? (a >= c ? a : c) : b;
+    }
+
+    public String escape(String text)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c == '\n' || c == '"') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString() + "\t" + 0x1F + 1.5e3f;
+    }
+
+    public String escapeQuoted(String input)
+    {
+        StringBuilder output = new StringBuilder();
+        output.append('"');
+        for (char ch : input.toCharArray()) {
+            if (ch == '\n' || ch == '"') {
+                output.append('\\');
+            }
+            output.append(ch);
+        }
+        return output.toString();
+    }
+
+    public Sample(String name, int size)
+    {
+        this.name = name;
+        this.size = Math.max(size, 0);
+    }
+
+    public int records(int[] record)
+    {
+        int yield = record.length;
+        return yield * 2;
+    }
+
+    public void empty()
+    {
+    }
+
+    public synchronized void sleep(long millis) throws InterruptedException
+    {
+        while (!done) {
+            wait(millis);
+        }
+        done = false;
+    }
+
+    /**
+     * The name of the sample.
+     */
+    public String getName()
+    {
+        return name;
+    }
+}